@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.cts.healthcare_appointment_system.dto.AppointmentDTO;
 import com.cts.healthcare_appointment_system.models.Appointment;
 import com.cts.healthcare_appointment_system.services.AppointmentService;
+import com.cts.healthcare_appointment_system.services.BookingDispatcher;
 
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
@@ -26,8 +27,9 @@ import lombok.AllArgsConstructor;
 public class AppointmentController {
 	
 	private AppointmentService appointmentService;
+	private BookingDispatcher bookingDispatcher;
 	
-	//Retrieve all appointment details (sorted by time_slot_start)
+	//Retrieve all appointment details (sorted by time_slot_start), or one page at a time when a size or cursor is given (the next page's cursor is sent in the X-Next-Cursor header)
 	@GetMapping
 	public ResponseEntity<List<Appointment>> getAllAppointments(
 			@RequestParam(defaultValue = "0") int patientId,
@@ -36,9 +38,11 @@ public class AppointmentController {
 			@RequestParam(required = false) String doctorName,
 			@RequestParam(required = false) LocalDateTime timeSlotStart,
 			@RequestParam(required = false) LocalDateTime timeSlotEnd,
-			@RequestParam(required = false) String status
+			@RequestParam(required = false) String status,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer size
 			){
-		return appointmentService.getAllAppointments(patientId, doctorId, patientName, doctorName, timeSlotStart, timeSlotEnd, status);
+		return appointmentService.getAllAppointments(patientId, doctorId, patientName, doctorName, timeSlotStart, timeSlotEnd, status, cursor, size);
 	}
 	
 	//Retrieve a specific appointment by id
@@ -47,10 +51,10 @@ public class AppointmentController {
 		return appointmentService.getAppointmentById(id);
 	}
 	
-	//Create a new appointment
+	//Create a new appointment (queued on the booking lane of the doctor, 429 when the lane is full)
 	@PostMapping
 	public ResponseEntity<Appointment> saveAppointment(@Valid @RequestBody AppointmentDTO dto){
-		return appointmentService.saveAppointment(dto);
+		return bookingDispatcher.book(dto);
 	}
 	
 	//Cancel an appointment by id
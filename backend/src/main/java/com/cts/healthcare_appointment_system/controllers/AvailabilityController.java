@@ -16,8 +16,11 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.cts.healthcare_appointment_system.dto.AvailabilityDTO;
 import com.cts.healthcare_appointment_system.dto.AvailabilityUpdateDTO;
+import com.cts.healthcare_appointment_system.dto.SlotHold;
+import com.cts.healthcare_appointment_system.dto.SlotHoldDTO;
 import com.cts.healthcare_appointment_system.models.Availability;
 import com.cts.healthcare_appointment_system.services.AvailabilityService;
+import com.cts.healthcare_appointment_system.services.SlotHoldService;
 
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
@@ -28,16 +31,19 @@ import lombok.AllArgsConstructor;
 public class AvailabilityController {
 
     private AvailabilityService availabilityService;
+    private SlotHoldService slotHoldService;
 
-    // Retrieves all availabilities
+    // Retrieves all availabilities, or one page at a time when a size or cursor is given (the next page's cursor is sent in the X-Next-Cursor header)
     @GetMapping
     public ResponseEntity<List<Availability>> getAllAvailabilities(
             @RequestParam(defaultValue = "0") int doctorId,
             @RequestParam(required = false) String namePrefix,
             @RequestParam(required = false) LocalDateTime timeSlotStart,
             @RequestParam(required = false) LocalDateTime timeSlotEnd,
-            @RequestParam(required = false) String isAvailable) {
-        return availabilityService.getAllAvailabilities(doctorId, namePrefix, timeSlotStart, timeSlotEnd, isAvailable);
+            @RequestParam(required = false) String isAvailable,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return availabilityService.getAllAvailabilities(doctorId, namePrefix, timeSlotStart, timeSlotEnd, isAvailable, cursor, size);
     }
 
     // Retrieves availability by Id
@@ -53,6 +59,12 @@ public class AvailabilityController {
 
     }
 
+    // Hold a slot for a patient while the booking is confirmed (only the holder can book it until the hold expires)
+    @PostMapping("/{id}/hold")
+    public ResponseEntity<SlotHold> holdSlot(@PathVariable int id, @Valid @RequestBody SlotHoldDTO dto) {
+        return slotHoldService.holdSlot(id, dto);
+    }
+
     // Edit an existing availability
     @PutMapping
     public ResponseEntity<Availability> editAvailability(@Valid @RequestBody AvailabilityUpdateDTO dto) {
@@ -0,0 +1,41 @@
+package com.cts.healthcare_appointment_system.controllers;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cts.healthcare_appointment_system.dto.DeadLetter;
+import com.cts.healthcare_appointment_system.services.DeadLetterService;
+
+import lombok.AllArgsConstructor;
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/notifications")
+public class NotificationController {
+
+    private DeadLetterService deadLetterService;
+
+    // Retrieve the notifications which failed after every retry
+    @GetMapping("/dead-letters")
+    public ResponseEntity<List<DeadLetter>> getDeadLetters() {
+        return deadLetterService.getDeadLetters();
+    }
+
+    // Send a failed notification again, returns how many were queued
+    @PostMapping("/dead-letters/{id}/replay")
+    public ResponseEntity<Integer> replay(@PathVariable long id) {
+        return deadLetterService.replay(id);
+    }
+
+    // Send every failed notification again
+    @PostMapping("/dead-letters/replay")
+    public ResponseEntity<Integer> replayAll() {
+        return deadLetterService.replayAll();
+    }
+}
@@ -0,0 +1,46 @@
+package com.cts.healthcare_appointment_system.controllers;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cts.healthcare_appointment_system.dto.WaitlistDTO;
+import com.cts.healthcare_appointment_system.models.WaitlistEntry;
+import com.cts.healthcare_appointment_system.services.WaitlistService;
+
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/waitlist")
+public class WaitlistController {
+
+    private WaitlistService waitlistService;
+
+    // Retrieve the waitlist entries of a patient
+    @GetMapping
+    public ResponseEntity<List<WaitlistEntry>> getWaitlistOfPatient(@RequestParam int patientId) {
+        return waitlistService.getWaitlistOfPatient(patientId);
+    }
+
+    // Join the waitlist of a doctor for a day (a released slot of that day is booked for the first eligible patient)
+    @PostMapping
+    public ResponseEntity<WaitlistEntry> joinWaitlist(@Valid @RequestBody WaitlistDTO dto) {
+        return waitlistService.joinWaitlist(dto);
+    }
+
+    // Leave the waitlist
+    @DeleteMapping("/{id}")
+    public ResponseEntity<WaitlistEntry> leaveWaitlist(@PathVariable int id) {
+        return waitlistService.leaveWaitlist(id);
+    }
+}
@@ -0,0 +1,7 @@
+package com.cts.healthcare_appointment_system.dto;
+
+import java.time.LocalDateTime;
+
+// Lightweight projection of an appointment, used to schedule its reminder
+public record AppointmentSlot(int appointmentId, LocalDateTime timeSlotStart) {
+}
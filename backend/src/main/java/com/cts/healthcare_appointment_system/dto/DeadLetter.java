@@ -0,0 +1,11 @@
+package com.cts.healthcare_appointment_system.dto;
+
+import java.time.LocalDateTime;
+
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+
+// A notification given up on after 'max-attempts' (without the recipient's address and names)
+public record DeadLetter(long notificationId, NotificationType type, int appointmentId, UserRole recipientRole,
+        int attempts, String lastError, LocalDateTime createdAt) {
+}
@@ -0,0 +1,5 @@
+package com.cts.healthcare_appointment_system.dto;
+
+// A rendered email, ready to be sent
+public record EmailMessage(String to, String subject, String body) {
+}
@@ -0,0 +1,7 @@
+package com.cts.healthcare_appointment_system.dto;
+
+import java.time.LocalDateTime;
+
+// A hold granted on an availability slot, only the patient holding it can book it until it expires
+public record SlotHold(int availabilityId, int patientId, LocalDateTime expiresAt) {
+}
@@ -0,0 +1,17 @@
+package com.cts.healthcare_appointment_system.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// For holding an availability slot during checkout
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotHoldDTO {
+
+    @NotNull(message = "Patient id is required")
+    private Integer patientId;
+}
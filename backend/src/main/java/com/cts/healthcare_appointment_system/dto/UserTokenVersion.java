@@ -0,0 +1,5 @@
+package com.cts.healthcare_appointment_system.dto;
+
+// Current token version of a user, loaded in the TokenVersionTable
+public record UserTokenVersion(int userId, int tokenVersion) {
+}
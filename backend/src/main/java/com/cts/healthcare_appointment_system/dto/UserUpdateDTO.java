@@ -29,4 +29,7 @@ public class UserUpdateDTO {
     @NotNull(message = "Phone number is required")
     @Pattern(regexp = "\\d{10}", message = "Phone number is invalid")
     private String phone;
+
+    // Doctors only: one daily digest instead of an email per change (unchanged when omitted)
+    private Boolean emailDigest;
 }
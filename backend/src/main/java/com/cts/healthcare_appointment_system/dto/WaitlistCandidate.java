@@ -0,0 +1,7 @@
+package com.cts.healthcare_appointment_system.dto;
+
+import java.time.LocalDateTime;
+
+// Lightweight projection of a waitlist entry, kept in the in-memory waitlist index
+public record WaitlistCandidate(int waitlistId, int patientId, LocalDateTime createdAt) {
+}
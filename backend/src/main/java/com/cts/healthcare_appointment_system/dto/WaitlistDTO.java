@@ -0,0 +1,27 @@
+package com.cts.healthcare_appointment_system.dto;
+
+import java.time.LocalDate;
+
+import jakarta.validation.constraints.FutureOrPresent;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// For joining the waitlist of a doctor on a given day
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistDTO {
+
+    @NotNull(message = "Patient id is required")
+    private Integer patientId;
+
+    @NotNull(message = "Doctor id is required")
+    private Integer doctorId;
+
+    @NotNull(message = "Date is required")
+    @FutureOrPresent(message = "Date can't be in the past")
+    private LocalDate date;
+}
@@ -0,0 +1,5 @@
+package com.cts.healthcare_appointment_system.enums;
+
+public enum NotificationStatus {
+    PENDING, SENT, FAILED
+}
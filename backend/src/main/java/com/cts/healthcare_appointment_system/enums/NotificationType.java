@@ -0,0 +1,5 @@
+package com.cts.healthcare_appointment_system.enums;
+
+public enum NotificationType {
+    BOOKED, CANCELLED, COMPLETED, RESCHEDULED, REMINDER, CONSULTATION, DIGEST
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import jakarta.persistence.CascadeType;
@@ -58,6 +59,11 @@ public class Appointment {
     @Column(name = "status")
     private AppointmentStatus status;
 
+    // Incremented whenever the slot changes
+    @JsonIgnore
+    @Column(name = "revision")
+    private int revision;
+
     public void book() {
         this.setStatus(AppointmentStatus.BOOKED);
     }
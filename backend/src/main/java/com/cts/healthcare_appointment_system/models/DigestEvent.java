@@ -0,0 +1,53 @@
+package com.cts.healthcare_appointment_system.models;
+
+import java.time.LocalDateTime;
+
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A change to the schedule of a doctor receiving the daily digest, kept until the next digest is queued
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "doctor_digest_events")
+public class DigestEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    private long eventId;
+
+    @Column(name = "doctor_id")
+    private int doctorId;
+
+    @Enumerated(value = EnumType.STRING)
+    @Column(name = "type")
+    private NotificationType type;
+
+    @Column(name = "appointment_id")
+    private int appointmentId;
+
+    @Column(name = "patient_name")
+    private String patientName;
+
+    @Column(name = "time_slot_start")
+    private LocalDateTime timeSlotStart;
+
+    @Column(name = "time_slot_end")
+    private LocalDateTime timeSlotEnd;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
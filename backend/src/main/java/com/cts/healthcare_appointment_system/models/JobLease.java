@@ -0,0 +1,44 @@
+package com.cts.healthcare_appointment_system.models;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lease of a scheduled job, held by 'owner' until 'leaseUntil'
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "job_leases")
+public class JobLease {
+
+    @Id
+    @Column(name = "job_name")
+    private String jobName;
+
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "fencing_token")
+    private long fencingToken;
+
+    // The holder's deadline on its own monotonic clock (System.nanoTime): 'leaseUntil' is on the database clock
+    @Transient
+    private long deadlineNanos;
+
+    // Time the holder has left on the lease
+    public Duration remaining() {
+        return Duration.ofNanos(deadlineNanos - System.nanoTime());
+    }
+}
@@ -0,0 +1,27 @@
+package com.cts.healthcare_appointment_system.models;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Progress of a scheduled job, everything up to (and including) the watermark is already processed
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "job_watermarks")
+public class JobWatermark {
+
+    @Id
+    @Column(name = "job_name")
+    private String jobName;
+
+    @Column(name = "watermark")
+    private LocalDateTime watermark;
+}
@@ -0,0 +1,86 @@
+package com.cts.healthcare_appointment_system.models;
+
+import java.time.LocalDateTime;
+
+import com.cts.healthcare_appointment_system.enums.NotificationStatus;
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A notification waiting in (or sent from) the outbox, for one recipient
+// It holds a snapshot of what the email needs, so it renders the same even if the appointment or users change later
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "notification_outbox")
+public class OutboxNotification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "notification_id")
+    private long notificationId;
+
+    @Enumerated(value = EnumType.STRING)
+    @Column(name = "type")
+    private NotificationType type;
+
+    @Column(name = "appointment_id")
+    private int appointmentId;
+
+    @Enumerated(value = EnumType.STRING)
+    @Column(name = "recipient_role")
+    private UserRole recipientRole;
+
+    @Column(name = "recipient_email")
+    private String recipientEmail;
+
+    @Column(name = "patient_name")
+    private String patientName;
+
+    @Column(name = "doctor_name")
+    private String doctorName;
+
+    @Column(name = "time_slot_start")
+    private LocalDateTime timeSlotStart;
+
+    @Column(name = "time_slot_end")
+    private LocalDateTime timeSlotEnd;
+
+    @Column(name = "dedup_key")
+    private String dedupKey;
+
+    @Enumerated(value = EnumType.STRING)
+    @Column(name = "status")
+    private NotificationStatus status;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    @Column(name = "available_at")
+    private LocalDateTime availableAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    // Text rendered when the notification is queued (the schedule and changes of a DIGEST), null otherwise
+    @Column(name = "details")
+    private String details;
+}
@@ -0,0 +1,40 @@
+package com.cts.healthcare_appointment_system.models;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A JWT signing key: signs from 'activatesAt' until 'retiresAt', verifies until 'expiresAt'
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "jwt_signing_keys")
+public class SigningKey {
+
+    @Id
+    @Column(name = "kid")
+    private String kid;
+
+    // Base64 of the HMAC-SHA256 key
+    @Column(name = "secret")
+    private String secret;
+
+    @Column(name = "activates_at")
+    private LocalDateTime activatesAt;
+
+    @Column(name = "retires_at")
+    private LocalDateTime retiresAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 import com.cts.healthcare_appointment_system.enums.UserRole;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonProperty.Access;
 
@@ -66,6 +67,15 @@ public class User {
     @Column(name = "phone", columnDefinition = "CHAR(10)")
     private String phone;
 
+    // If the User is a 'DOCTOR': one daily digest instead of an email per booking, cancellation, reschedule and reminder
+    @Column(name = "email_digest")
+    private boolean emailDigest;
+
+    // Incremented whenever the password changes
+    @JsonIgnore
+    @Column(name = "token_version")
+    private int tokenVersion;
+
     // To add availability to the current user (DOCTOR)
     public void addAvailability(Availability availability) {
         availability.setDoctor(this);
@@ -0,0 +1,44 @@
+package com.cts.healthcare_appointment_system.models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A patient waiting for a slot of a doctor on a given day, first come first served
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "waitlist_entries")
+public class WaitlistEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "waitlist_id")
+    private int waitlistId;
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id")
+    private User patient;
+
+    @ManyToOne
+    @JoinColumn(name = "doctor_id")
+    private User doctor;
+
+    @Column(name = "wait_date")
+    private LocalDate waitDate;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
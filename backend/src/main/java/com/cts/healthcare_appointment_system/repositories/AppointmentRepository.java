@@ -2,14 +2,82 @@ package com.cts.healthcare_appointment_system.repositories;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.cts.healthcare_appointment_system.dto.AppointmentSlot;
+import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
 import com.cts.healthcare_appointment_system.models.Appointment;
 
-public interface AppointmentRepository extends JpaRepository<Appointment, Integer>{
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+
+public interface AppointmentRepository extends JpaRepository<Appointment, Integer>, JpaSpecificationExecutor<Appointment>{
     public List<Appointment> findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(int doctorId, LocalDateTime timeSlotSlart, LocalDateTime timeSlotEnd);
 
-    // Fetch all the appointments between the date-time range
-    public List<Appointment> findByTimeSlotStartBetween(LocalDateTime start, LocalDateTime end);
+    // Schedule of a doctor, served by idx_appointments_doctor_status_start
+    @Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.patient WHERE a.doctor.userId = :doctorId AND a.status = :status AND a.timeSlotStart >= :from AND a.timeSlotStart < :to ORDER BY a.timeSlotStart")
+    public List<Appointment> findScheduleOfDoctor(@Param("doctorId") int doctorId, @Param("status") AppointmentStatus status, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Appointments (with the given status) starting in (from, to], range scan on idx_appointments_status_start
+    @Query("SELECT new com.cts.healthcare_appointment_system.dto.AppointmentSlot(a.appointmentId, a.timeSlotStart) FROM Appointment a WHERE a.status = :status AND a.timeSlotStart > :from AND a.timeSlotStart <= :to")
+    public List<AppointmentSlot> findSlotsStartingBetween(@Param("status") AppointmentStatus status, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Lock an appointment until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Appointment a WHERE a.appointmentId = :id")
+    public Optional<Appointment> lockById(@Param("id") int appointmentId);
+
+    @Query(nativeQuery = true, value = "SELECT COUNT(*) > 0 FROM appointment_reminders WHERE appointment_id = :id AND reminder_start = :start")
+    public boolean isReminderRecorded(@Param("id") int appointmentId, @Param("start") LocalDateTime timeSlotStart);
+
+    // Record a sent reminder in the ledger, fails with a key violation if it was already recorded
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "INSERT INTO appointment_reminders (appointment_id, reminder_start, sent_at) VALUES (:id, :start, :sentAt)")
+    public int recordReminder(@Param("id") int appointmentId, @Param("start") LocalDateTime timeSlotStart, @Param("sentAt") LocalDateTime sentAt);
+
+    // Lock the appointments (with the given status) which ended in (from, to], range scan on idx_appointments_status_end
+    // Only the appointment rows are locked: the query reads the doctor id from the foreign key, without joining the users
+    // Restricted to the doctors of one shard (doctor id modulo 'shards'), unless there is a single shard
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a.appointmentId FROM Appointment a WHERE a.status = :status AND a.timeSlotEnd > :from AND a.timeSlotEnd <= :to AND (:shards = 1 OR MOD(a.doctor.userId, :shards) = :shard)")
+    public List<Integer> lockEndedAppointments(@Param("status") AppointmentStatus status, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("shards") int shards, @Param("shard") int shard);
+
+    // The given appointments, with their doctor and patient fetched in the same query (not locked)
+    @Query("SELECT a FROM Appointment a LEFT JOIN FETCH a.patient LEFT JOIN FETCH a.doctor WHERE a.appointmentId IN :ids")
+    public List<Appointment> findWithUsersByIdIn(@Param("ids") List<Integer> ids);
+
+    // Move the given appointments to a status, in one UPDATE
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = :to WHERE a.appointmentId IN :ids")
+    public int updateStatusOfAll(@Param("ids") List<Integer> ids, @Param("to") AppointmentStatus to);
+
+    // Check whether the patient has an appointment (with the given status) overlapping [start, end)
+    // Served by idx_appointments_patient_status_start, 'earliestStart' bounds the range scan as no slot is longer than the max slot duration
+    @Query("SELECT COUNT(a) > 0 FROM Appointment a WHERE a.patient.userId = :patientId AND a.status = :status AND a.timeSlotStart > :earliestStart AND a.timeSlotStart < :end AND a.timeSlotEnd > :start")
+    public boolean existsOverlappingForPatient(@Param("patientId") int patientId, @Param("status") AppointmentStatus status, @Param("earliestStart") LocalDateTime earliestStart, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Same check for the doctor, served by idx_appointments_doctor_status_start
+    @Query("SELECT COUNT(a) > 0 FROM Appointment a WHERE a.doctor.userId = :doctorId AND a.status = :status AND a.timeSlotStart > :earliestStart AND a.timeSlotStart < :end AND a.timeSlotEnd > :start")
+    public boolean existsOverlappingForDoctor(@Param("doctorId") int doctorId, @Param("status") AppointmentStatus status, @Param("earliestStart") LocalDateTime earliestStart, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // State transitions are compare-and-set UPDATEs: the row changes only if it's still in the expected status (and its guard holds),
+    // so concurrent requests and the cron jobs can't overwrite each other's transition (no entity loading or dirty checking)
+
+    // Cancel transition, not allowed once a consultation has been given for the appointment
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = :to WHERE a.appointmentId = :id AND a.status = :from AND NOT EXISTS (SELECT c FROM Consultation c WHERE c.appointment.appointmentId = :id)")
+    public int updateStatusIfNoConsultation(@Param("id") int id, @Param("from") AppointmentStatus from, @Param("to") AppointmentStatus to);
+
+    // Complete transition, not allowed before the appointment has started
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = :to WHERE a.appointmentId = :id AND a.status = :from AND a.timeSlotStart < :now")
+    public int updateStatusIfStarted(@Param("id") int id, @Param("from") AppointmentStatus from, @Param("to") AppointmentStatus to, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,78 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.utils.KeysetCursor;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+
+// Builds the search predicate of GET /appointments, so that all the filters run in SQL
+// patientId/doctorId + status + time range are served by idx_appointments_patient_status_start and idx_appointments_doctor_status_start
+public final class AppointmentSpecifications {
+
+    // Stable sort of the keyset pages (latest first, id as the tie-breaker)
+    public static final Sort KEYSET_SORT = Sort.by(Direction.DESC, "timeSlotStart").and(Sort.by(Direction.DESC, "appointmentId"));
+
+    private AppointmentSpecifications() {
+    }
+
+    public static Specification<Appointment> search(int patientId, int doctorId, String patientName, String doctorName, LocalDateTime timeSlotStart, LocalDateTime timeSlotEnd, AppointmentStatus status, KeysetCursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            // Fetch the associations in the same query, instead of one select per appointment
+            // (patient/doctor can be NULL, if they have deleted their account)
+            Join<Appointment, User> patient = (Join<Appointment, User>) root.<Appointment, User>fetch("patient", JoinType.LEFT);
+            Join<Appointment, User> doctor = (Join<Appointment, User>) root.<Appointment, User>fetch("doctor", JoinType.LEFT);
+            root.fetch("consultation", JoinType.LEFT);
+
+            if (patientId != 0) {
+                predicates.add(cb.equal(root.get("patient").get("userId"), patientId));
+            }
+
+            if (doctorId != 0) {
+                predicates.add(cb.equal(root.get("doctor").get("userId"), doctorId));
+            }
+
+            if (patientName != null && !patientName.trim().equals("")) {
+                predicates.add(cb.like(cb.lower(patient.get("name")), AvailabilitySpecifications.escapeLike(patientName.trim().toLowerCase()) + "%", '\\'));
+            }
+
+            if (doctorName != null && !doctorName.trim().equals("")) {
+                predicates.add(cb.like(cb.lower(doctor.get("name")), AvailabilitySpecifications.escapeLike(doctorName.trim().toLowerCase()) + "%", '\\'));
+            }
+
+            if (status != null) {
+                predicates.add(cb.equal(root.get("status"), status));
+            }
+
+            if (timeSlotStart != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timeSlotStart"), timeSlotStart));
+            }
+
+            if (timeSlotEnd != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("timeSlotEnd"), timeSlotEnd));
+            }
+
+            // Seek past the last row of the previous page (descending order)
+            if (after != null) {
+                predicates.add(cb.or(
+                        cb.lessThan(root.get("timeSlotStart"), after.timeSlotStart()),
+                        cb.and(cb.equal(root.get("timeSlotStart"), after.timeSlotStart()), cb.lessThan(root.get("appointmentId"), after.id()))));
+            }
+
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
@@ -1,17 +1,41 @@
 package com.cts.healthcare_appointment_system.repositories;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.cts.healthcare_appointment_system.models.Availability;
-public interface AvailabilityRepository extends JpaRepository<Availability, Integer>{
+public interface AvailabilityRepository extends JpaRepository<Availability, Integer>, JpaSpecificationExecutor<Availability>{
     public Optional<Availability> findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(int doctorId, LocalDateTime timeSlotSlart, LocalDateTime timeSlotEnd);
 
-    // Find all the past availability slots of the current date
-    @Query("SELECT a FROM Availability a WHERE DATE(a.timeSlotStart) = CURRENT_DATE AND a.timeSlotEnd <= CURRENT_TIMESTAMP")
-    public List<Availability> findPastSlotsOfToday();
+    // Mark the free slots which ended in (from, to] unavailable, one range UPDATE on idx_availabilities_end
+    // Restricted to the doctors of one shard (doctor id modulo 'shards'), unless there is a single shard
+    @Modifying
+    @Query("UPDATE Availability a SET a.isAvailable = false WHERE a.timeSlotEnd > :from AND a.timeSlotEnd <= :to AND a.isAvailable = true AND (:shards = 1 OR MOD(a.doctor.userId, :shards) = :shard)")
+    public int markEndedSlotsUnavailable(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("shards") int shards, @Param("shard") int shard);
+
+    // Check whether [start, end) overlaps any slot of the doctor (other than excludeId)
+    // 'earliestStart' bounds the index range scan on (doctor_id, time_slot_start), as no slot is longer than the max slot duration
+    @Query("SELECT COUNT(a) > 0 FROM Availability a WHERE a.doctor.userId = :doctorId AND a.availabilityId <> :excludeId AND a.timeSlotStart > :earliestStart AND a.timeSlotStart < :end AND a.timeSlotEnd > :start")
+    public boolean existsOverlappingSlot(@Param("doctorId") int doctorId, @Param("excludeId") int excludeId, @Param("earliestStart") LocalDateTime earliestStart, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Claim a free slot with a conditional UPDATE, the affected row count (0 or 1) decides the winner among concurrent bookings
+    @Modifying
+    @Query("UPDATE Availability a SET a.isAvailable = false WHERE a.availabilityId = :id AND a.isAvailable = true")
+    public int claimSlot(@Param("id") int availabilityId);
+
+    // Release the slot of an appointment (same doctor and time slot), if it hasn't ended yet
+    @Modifying
+    @Query("UPDATE Availability av SET av.isAvailable = true WHERE av.timeSlotEnd > :now AND EXISTS (SELECT ap FROM Appointment ap WHERE ap.appointmentId = :appointmentId AND ap.doctor = av.doctor AND ap.timeSlotStart = av.timeSlotStart AND ap.timeSlotEnd = av.timeSlotEnd)")
+    public int releaseSlotOfAppointment(@Param("appointmentId") int appointmentId, @Param("now") LocalDateTime now);
+
+    // Make the slot of an appointment (same doctor and time slot) unavailable
+    @Modifying
+    @Query("UPDATE Availability av SET av.isAvailable = false WHERE av.isAvailable = true AND EXISTS (SELECT ap FROM Appointment ap WHERE ap.appointmentId = :appointmentId AND ap.doctor = av.doctor AND ap.timeSlotStart = av.timeSlotStart AND ap.timeSlotEnd = av.timeSlotEnd)")
+    public int claimSlotOfAppointment(@Param("appointmentId") int appointmentId);
 }
@@ -0,0 +1,71 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.utils.KeysetCursor;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+
+// Builds the search predicate of GET /availabilities, so that all the filters run in SQL
+// doctorId + time range is served by idx_availabilities_doctor_start_end, isAvailable + time range by idx_availabilities_available_start
+public final class AvailabilitySpecifications {
+
+    // Stable sort of the keyset pages (timeSlotStart, then id as the tie-breaker)
+    public static final Sort KEYSET_SORT = Sort.by(Direction.ASC, "timeSlotStart").and(Sort.by(Direction.ASC, "availabilityId"));
+
+    private AvailabilitySpecifications() {
+    }
+
+    public static Specification<Availability> search(int doctorId, String namePrefix, Boolean isAvailable, LocalDateTime timeSlotStart, LocalDateTime timeSlotEnd, KeysetCursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            // Fetch the doctor in the same query, instead of one select per availability
+            Join<Availability, User> doctor = (Join<Availability, User>) root.<Availability, User>fetch("doctor", JoinType.LEFT);
+
+            if (doctorId != 0) {
+                predicates.add(cb.equal(root.get("doctor").get("userId"), doctorId));
+            }
+
+            if (namePrefix != null && !namePrefix.trim().equals("")) {
+                predicates.add(cb.like(cb.lower(doctor.get("name")), escapeLike(namePrefix.trim().toLowerCase()) + "%", '\\'));
+            }
+
+            if (isAvailable != null) {
+                predicates.add(cb.equal(root.get("isAvailable"), isAvailable));
+            }
+
+            if (timeSlotStart != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timeSlotStart"), timeSlotStart));
+            }
+
+            if (timeSlotEnd != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("timeSlotEnd"), timeSlotEnd));
+            }
+
+            // Seek past the last row of the previous page
+            if (after != null) {
+                predicates.add(cb.or(
+                        cb.greaterThan(root.get("timeSlotStart"), after.timeSlotStart()),
+                        cb.and(cb.equal(root.get("timeSlotStart"), after.timeSlotStart()), cb.greaterThan(root.get("availabilityId"), after.id()))));
+            }
+
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // Escape the LIKE wildcards, so that a prefix is matched literally
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,21 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cts.healthcare_appointment_system.models.DigestEvent;
+
+public interface DigestEventRepository extends JpaRepository<DigestEvent, Long>{
+
+    // Served by idx_doctor_digest_events_doctor
+    public List<DigestEvent> findByDoctorIdOrderByEventIdAsc(int doctorId);
+
+    // Drop the buffered changes of the doctors who turned the digest off
+    @Modifying
+    @Query("DELETE FROM DigestEvent e WHERE e.doctorId NOT IN (SELECT u.userId FROM User u WHERE u.emailDigest = true)")
+    public int deleteOfDoctorsWithoutDigest();
+}
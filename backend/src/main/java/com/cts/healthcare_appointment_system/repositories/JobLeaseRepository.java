@@ -0,0 +1,42 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cts.healthcare_appointment_system.models.JobLease;
+
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String>{
+
+    // Take the lease for 'ttlMicros' if it expired (or is already ours), the affected row count (0 or 1) decides the holder
+    // The lease times come from the database clock, shared by every replica, never from the caller's
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "UPDATE job_leases SET owner = :owner, lease_until = TIMESTAMPADD(MICROSECOND, :ttlMicros, CURRENT_TIMESTAMP(6)), fencing_token = fencing_token + 1 "
+            + "WHERE job_name = :jobName AND (lease_until <= CURRENT_TIMESTAMP(6) OR owner = :owner)")
+    public int tryAcquire(@Param("jobName") String jobName, @Param("owner") String owner, @Param("ttlMicros") long ttlMicros);
+
+    // Give the lease up early, only if nobody took it over meanwhile
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "UPDATE job_leases SET lease_until = CURRENT_TIMESTAMP(6) WHERE job_name = :jobName AND owner = :owner AND fencing_token = :token")
+    public int release(@Param("jobName") String jobName, @Param("owner") String owner, @Param("token") long token);
+
+    // First use of a job, created already expired (free to take); fails with a key violation when another replica created it first
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "INSERT INTO job_leases (job_name, owner, lease_until, fencing_token) VALUES (:jobName, NULL, CURRENT_TIMESTAMP(6), 0)")
+    public int create(@Param("jobName") String jobName);
+
+    // Lock the lease row until the transaction ends, so it can't be taken over before the job's writes commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM JobLease l WHERE l.jobName = :jobName")
+    public Optional<JobLease> lockByJobName(@Param("jobName") String jobName);
+}
@@ -0,0 +1,20 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cts.healthcare_appointment_system.models.JobWatermark;
+
+import jakarta.persistence.LockModeType;
+
+public interface JobWatermarkRepository extends JpaRepository<JobWatermark, String>{
+
+    // Lock the watermark row until the transaction ends, so two instances never sweep the same window
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM JobWatermark w WHERE w.jobName = :jobName")
+    public Optional<JobWatermark> lockByJobName(@Param("jobName") String jobName);
+}
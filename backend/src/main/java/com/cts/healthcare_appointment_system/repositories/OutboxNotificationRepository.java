@@ -0,0 +1,69 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cts.healthcare_appointment_system.enums.NotificationStatus;
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+
+import jakarta.transaction.Transactional;
+
+// enqueue() is in OutboxNotificationRepositoryImpl
+public interface OutboxNotificationRepository extends JpaRepository<OutboxNotification, Long>, OutboxNotificationRepositoryCustom {
+
+    // Drop the still pending notifications of an appointment to a recipient, superseded by a newer one (see NotificationService)
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxNotification n WHERE n.appointmentId = :appointmentId AND n.recipientRole = :role AND n.type IN :types AND n.status = com.cts.healthcare_appointment_system.enums.NotificationStatus.PENDING")
+    public int deletePending(@Param("appointmentId") int appointmentId, @Param("role") UserRole role, @Param("types") List<NotificationType> types);
+
+    // Oldest due notifications first, served by idx_notification_outbox_status_available
+    @Query("SELECT n FROM OutboxNotification n WHERE n.status = :status AND n.availableAt <= :now ORDER BY n.availableAt, n.notificationId")
+    public List<OutboxNotification> findDue(@Param("status") NotificationStatus status, @Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxNotification n SET n.status = com.cts.healthcare_appointment_system.enums.NotificationStatus.SENT, n.sentAt = :sentAt, n.attempts = n.attempts + 1 WHERE n.notificationId IN :ids")
+    public int markSent(@Param("ids") List<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    // A failed attempt: retried from 'availableAt', or given up on with status FAILED
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxNotification n SET n.status = :status, n.availableAt = :availableAt, n.lastError = :lastError, n.attempts = n.attempts + 1 WHERE n.notificationId = :id")
+    public int markFailed(@Param("id") long id, @Param("status") NotificationStatus status, @Param("availableAt") LocalDateTime availableAt, @Param("lastError") String lastError);
+
+    // Delay a notification without counting an attempt (its destination is unavailable)
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxNotification n SET n.availableAt = :availableAt WHERE n.notificationId = :id")
+    public int postpone(@Param("id") long id, @Param("availableAt") LocalDateTime availableAt);
+
+    // Dead letters, the notifications given up on after 'max-attempts'
+    public List<OutboxNotification> findByStatusOrderByNotificationIdDesc(NotificationStatus status, Limit limit);
+
+    // Queue dead letters again, with a fresh set of attempts
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxNotification n SET n.status = com.cts.healthcare_appointment_system.enums.NotificationStatus.PENDING, n.attempts = 0, n.availableAt = :now "
+            + "WHERE n.status = com.cts.healthcare_appointment_system.enums.NotificationStatus.FAILED AND (:id IS NULL OR n.notificationId = :id)")
+    public int replayFailed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Drop the notifications sent before the retention period, range scan on idx_notification_outbox_status_sent
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxNotification n WHERE n.status = com.cts.healthcare_appointment_system.enums.NotificationStatus.SENT AND n.sentAt < :before")
+    public int deleteSentBefore(@Param("before") LocalDateTime before);
+
+    public long countByStatus(NotificationStatus status);
+
+    @Query("SELECT MIN(n.createdAt) FROM OutboxNotification n WHERE n.status = :status")
+    public LocalDateTime findOldestCreatedAt(@Param("status") NotificationStatus status);
+}
@@ -0,0 +1,9 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+
+public interface OutboxNotificationRepositoryCustom {
+
+    // Queue a notification in the caller's transaction, false (and nothing queued) if one with the same dedup key is already queued or sent
+    public boolean enqueue(OutboxNotification notification);
+}
@@ -0,0 +1,46 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+
+// The outbox insert goes through JDBC, on the connection of the caller's transaction: Hibernate would mark the whole transaction
+// rollback-only on the duplicate key, while the database only rolls back the failed statement, so the duplicate is skipped
+// and the business transaction goes on; any other error fails it as usual
+public class OutboxNotificationRepositoryImpl implements OutboxNotificationRepositoryCustom {
+
+    private static final String INSERT = "INSERT INTO notification_outbox (type, appointment_id, recipient_role, recipient_email, patient_name, doctor_name, time_slot_start, time_slot_end, dedup_key, status, attempts, available_at, created_at, details) "
+            + "VALUES (:type, :appointmentId, :recipientRole, :recipientEmail, :patientName, :doctorName, :timeSlotStart, :timeSlotEnd, :dedupKey, :status, 0, :availableAt, :createdAt, :details)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public OutboxNotificationRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean enqueue(OutboxNotification n) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("type", n.getType().name())
+                .addValue("appointmentId", n.getAppointmentId())
+                .addValue("recipientRole", n.getRecipientRole().name())
+                .addValue("recipientEmail", n.getRecipientEmail())
+                .addValue("patientName", n.getPatientName())
+                .addValue("doctorName", n.getDoctorName())
+                .addValue("timeSlotStart", n.getTimeSlotStart())
+                .addValue("timeSlotEnd", n.getTimeSlotEnd())
+                .addValue("dedupKey", n.getDedupKey())
+                .addValue("status", n.getStatus().name())
+                .addValue("availableAt", n.getAvailableAt())
+                .addValue("createdAt", n.getCreatedAt())
+                .addValue("details", n.getDetails());
+        try {
+            jdbcTemplate.update(INSERT, params);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cts.healthcare_appointment_system.models.SigningKey;
+
+import jakarta.transaction.Transactional;
+
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String>{
+
+    // The keys still verifying tokens
+    public List<SigningKey> findByExpiresAtAfter(LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SigningKey k WHERE k.expiresAt <= :now")
+    public int deleteExpired(@Param("now") LocalDateTime now);
+}
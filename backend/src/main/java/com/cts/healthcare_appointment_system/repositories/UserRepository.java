@@ -1,11 +1,43 @@
 package com.cts.healthcare_appointment_system.repositories;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.cts.healthcare_appointment_system.dto.UserTokenVersion;
+import com.cts.healthcare_appointment_system.enums.UserRole;
 import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.security.UserPrincipal;
+
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
 
 public interface UserRepository extends JpaRepository<User, Integer>{
     public Optional<User> findByEmail(String email);
+
+    // Lock the user row until the transaction ends (serializes the availability changes of a doctor, see AvailabilityOverlapDetector)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.userId = :userId")
+    public Optional<User> lockById(@Param("userId") int userId);
+
+    public List<User> findByRoleAndEmailDigestTrue(UserRole role);
+
+    // Only the columns needed to authorize a request (see PrincipalCache)
+    @Query("SELECT new com.cts.healthcare_appointment_system.security.UserPrincipal(u.userId, u.email, u.role, u.tokenVersion) FROM User u WHERE u.email = :email")
+    public Optional<UserPrincipal> findPrincipalByEmail(@Param("email") String email);
+
+    // Every user's token version, in id order (see TokenVersionTable)
+    @Query("SELECT new com.cts.healthcare_appointment_system.dto.UserTokenVersion(u.userId, u.tokenVersion) FROM User u ORDER BY u.userId")
+    public List<UserTokenVersion> findAllTokenVersions();
+
+    // Replace a password hash with its rehash, unless the password was changed meanwhile (the token version is kept, it's the same password)
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.email = :email AND u.password = :oldHash")
+    public int rehashPassword(@Param("email") String email, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
@@ -0,0 +1,39 @@
+package com.cts.healthcare_appointment_system.repositories;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cts.healthcare_appointment_system.dto.WaitlistCandidate;
+import com.cts.healthcare_appointment_system.models.WaitlistEntry;
+
+import jakarta.transaction.Transactional;
+
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Integer>{
+
+    public List<WaitlistEntry> findByPatientUserIdOrderByWaitDateAsc(int patientId);
+
+    public boolean existsByPatientUserIdAndDoctorUserIdAndWaitDate(int patientId, int doctorId, LocalDate waitDate);
+
+    // Patients waiting for the doctor on the given day (served by the index on doctor_id, wait_date, created_at)
+    @Query("SELECT new com.cts.healthcare_appointment_system.dto.WaitlistCandidate(w.waitlistId, w.patient.userId, w.createdAt) FROM WaitlistEntry w WHERE w.doctor.userId = :doctorId AND w.waitDate = :date")
+    public List<WaitlistCandidate> findCandidates(@Param("doctorId") int doctorId, @Param("date") LocalDate date);
+
+    // Take an entry off the waitlist to offer it a slot, 0 if the patient already left (possibly through another replica)
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM WaitlistEntry w WHERE w.waitlistId = :id")
+    public int claim(@Param("id") int id);
+
+    // Put back an entry claimed for a slot the patient couldn't take, with its id and place in the queue
+    // Fails with a key violation if the patient joined the same waitlist again meanwhile
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "INSERT INTO waitlist_entries (waitlist_id, patient_id, doctor_id, wait_date, created_at) VALUES (:id, :patientId, :doctorId, :date, :createdAt)")
+    public int restore(@Param("id") int id, @Param("patientId") int patientId, @Param("doctorId") int doctorId, @Param("date") LocalDate date, @Param("createdAt") LocalDateTime createdAt);
+}
@@ -3,16 +3,12 @@ package com.cts.healthcare_appointment_system.security;
 import java.io.IOException;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.cts.healthcare_appointment_system.services.ApiUserDetailsService;
-
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,7 +18,10 @@ import jakarta.servlet.http.HttpServletResponse;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     @Autowired
-    private ApplicationContext context;
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private TokenVersionTable tokenVersions;
 
     @Autowired
     private JwtUtils jwtUtils;
@@ -31,24 +30,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        String userEmail = null;
-        String jwtToken = null;
 
-        // Extracting client name from token
+        // Verifying the token (signature and expiry) with a single parse, and extracting client name from it
+        VerifiedToken verified = null;
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwtToken = authHeader.substring(7);
-            userEmail = jwtUtils.extractUserEmail(jwtToken);
+            verified = jwtUtils.verify(authHeader.substring(7)).orElse(null);
         }
 
         // Setting authentication in SecurityContext
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (verified != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = context.getBean(ApiUserDetailsService.class).loadUserByUsername(userEmail);
+            UserPrincipal principal = authorize(verified);
 
-            if (jwtUtils.validateToken(jwtToken, userDetails)) {
+            if (principal != null) {
 
-                UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(userDetails, null,
-                        userDetails.getAuthorities());
+                UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(principal, null,
+                        principal.getAuthorities());
                 token.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(token);
             }
@@ -61,4 +58,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // The principal of a verified token, null if the token was revoked (its user's credentials changed, or the user was deleted)
+    private UserPrincipal authorize(VerifiedToken verified) {
+        // Stateless mode: built from the claims, with no repository call
+        if (tokenVersions.isReady() && verified.isSelfContained()) {
+            return tokenVersions.isCurrent(verified.userId(), verified.tokenVersion()) ? verified.toPrincipal() : null;
+        }
+
+        // Cached principal snapshot, the database is only queried on a miss (empty if the user was deleted)
+        UserPrincipal principal = principalCache.get(verified.userEmail()).orElse(null);
+        if (principal == null || (verified.tokenVersion() != null && verified.tokenVersion() != principal.tokenVersion())) {
+            return null;
+        }
+        return principal;
+    }
+
 }
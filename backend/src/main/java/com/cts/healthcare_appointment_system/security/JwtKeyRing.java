@@ -0,0 +1,68 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.security.Key;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.models.SigningKey;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Keys;
+
+// The signing keys loaded in memory (see SigningKeyManager): the key signing new tokens, and the keys verifying tokens by 'kid'
+// Replaced as a whole on each reload, so lookups never lock
+@Component
+public class JwtKeyRing extends LocatorAdapter<Key> {
+
+    private volatile Ring ring = new Ring(List.of(), Map.of());
+
+    // Keep the keys which haven't expired as of 'now'
+    public void load(List<SigningKey> keys, LocalDateTime now) {
+        List<ActiveKey> signing = keys.stream()
+                .filter(k -> k.getExpiresAt().isAfter(now))
+                .map(k -> new ActiveKey(k.getKid(), Keys.hmacShaKeyFor(Base64.getDecoder().decode(k.getSecret())), k.getActivatesAt()))
+                // Latest activation first
+                .sorted(Comparator.comparing(ActiveKey::activatesAt).reversed())
+                .toList();
+
+        Map<String, SecretKey> verifying = new HashMap<>();
+        signing.forEach(k -> verifying.put(k.kid(), k.key()));
+        ring = new Ring(signing, Map.copyOf(verifying));
+    }
+
+    // The most recently activated key, null when there's none yet
+    public ActiveKey signingKey(LocalDateTime now) {
+        for (ActiveKey key : ring.signing()) {
+            if (!key.activatesAt().isAfter(now)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return ring.verifying().size();
+    }
+
+    // Called by the JWT parser, a token with an unknown (or no) kid has no key and fails verification
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        return kid == null ? null : ring.verifying().get(kid);
+    }
+
+    public record ActiveKey(String kid, SecretKey key, LocalDateTime activatesAt) {
+    }
+
+    private record Ring(List<ActiveKey> signing, Map<String, SecretKey> verifying) {
+    }
+}
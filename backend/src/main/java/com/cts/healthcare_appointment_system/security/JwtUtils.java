@@ -1,93 +1,88 @@
 package com.cts.healthcare_appointment_system.security;
 
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
 
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
-
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.security.JwtKeyRing.ActiveKey;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
 
+import lombok.extern.slf4j.Slf4j;
+
+// Issues and verifies the JWTs
+// A token carries the user's email (subject), id, role and token version, so it can be authorized without a lookup
+// Tokens are signed with the current key of the JwtKeyRing and name it in their 'kid' header, the parser (built once,
+// immutable and thread-safe) looks the verification key up by that kid, so every replica verifies every replica's tokens
+@Slf4j
 @Component
 public class JwtUtils {
 
-    private String SECRET_KEY;
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+    static final String TOKEN_VERSION_CLAIM = "ver";
 
-    public JwtUtils() {
-        try {
-            // Generate a new key and encode it
-            KeyGenerator keyGen = KeyGenerator.getInstance("HmacSHA256");
-            SecretKey sk = keyGen.generateKey();
-            SECRET_KEY = Base64.getEncoder().encodeToString(sk.getEncoded());
+    private final JwtKeyRing keyRing;
+    private final Duration tokenValidity;
+    private final JwtParser parser;
 
-        } catch (NoSuchAlgorithmException e) {
-            System.out.println(e);
-        }
+    public JwtUtils(JwtKeyRing keyRing, @Value("${security.jwt.token-validity:7d}") Duration tokenValidity) {
+        this.keyRing = keyRing;
+        this.tokenValidity = tokenValidity;
+        this.parser = Jwts.parser()
+                .keyLocator(keyRing)
+                .build();
     }
 
-    public SecretKey getSecureKey() {
-        // Generate HMAC-SHA version of the key
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
-    }
-
-    public String generateJWTToken(String userEmail) {
+    public String generateJWTToken(UserPrincipal user) {
         Map<String, Object> claims = new HashMap<>();
-        // claims.put("role", "admin"); // We can add role like this, if needed
+        claims.put(USER_ID_CLAIM, user.userId());
+        claims.put(ROLE_CLAIM, user.role().name());
+        claims.put(TOKEN_VERSION_CLAIM, user.tokenVersion());
+
+        ActiveKey key = keyRing.signingKey(LocalDateTime.now());
+        if (key == null) {
+            throw new IllegalStateException("No JWT signing key is active");
+        }
         return Jwts.builder()
+                .header()
+                .keyId(key.kid())
+                .and()
                 .claims()
                 .add(claims)
-                .subject(userEmail)
+                .subject(user.email())
                 .issuedAt(new Date(System.currentTimeMillis()))
-                // 7 days validity after the creation of the token
-                .expiration(new Date(System.currentTimeMillis() + 7 * 24 * 60 * 60 * 1000))
+                .expiration(new Date(System.currentTimeMillis() + tokenValidity.toMillis()))
                 .and()
-                .signWith(getSecureKey())
+                .signWith(key.key())
                 .compact();
     }
 
-    // Extracting user email from token
-    public String extractUserEmail(String jwtToken) {
-        return extractClaim(jwtToken, Claims::getSubject);
-    }
-
-    // Validate token
-    public boolean validateToken(String jwtToken, UserDetails userDetails) {
-        final String userEmail = extractUserEmail(jwtToken);
-        return (userEmail.equals(userDetails.getUsername()) && !isTokenExpired(jwtToken));
-    }
-
-    // Check if the token has expired
-    private boolean isTokenExpired(String jwtToken) {
-        return extractExpiration(jwtToken).before(new Date());
-    }
-
-    // Extracting expiration date from token
-    private Date extractExpiration(String jwtToken) {
-        return extractClaim(jwtToken, Claims::getExpiration);
-    }
-
-    // Extracting claims from token
-    private <T> T extractClaim(String jwtToken, Function<Claims, T> claimResolver) {
-        final Claims claims = extractAllClaims(jwtToken);
-        return claimResolver.apply(claims);
-    }
-
-    // Extracting all claims from token
-    private Claims extractAllClaims(String jwtToken) {
-        return Jwts.parser()
-                .verifyWith(getSecureKey())
-                .build()
-                .parseSignedClaims(jwtToken)
-                .getPayload();
+    // Parse the token once, checking its signature and expiry, empty if it's invalid or expired
+    public Optional<VerifiedToken> verify(String jwtToken) {
+        try {
+            Claims claims = parser.parseSignedClaims(jwtToken).getPayload();
+            if (claims.getSubject() == null) {
+                return Optional.empty();
+            }
+            String role = claims.get(ROLE_CLAIM, String.class);
+            return Optional.of(new VerifiedToken(claims.getSubject(), claims.getExpiration(),
+                    claims.get(USER_ID_CLAIM, Integer.class),
+                    role == null ? null : UserRole.valueOf(role),
+                    claims.get(TOKEN_VERSION_CLAIM, Integer.class)));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected JWT: {}", e.getMessage());
+            return Optional.empty();
+        }
     }
 }
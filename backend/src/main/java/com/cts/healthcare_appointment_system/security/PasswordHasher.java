@@ -0,0 +1,153 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.error.ApiException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+// BCrypt on a fixed pool of 'threads' workers with a queue of 'queue-capacity' hashes, so a burst of logins and registrations
+// keeps at most 'threads' cores busy and only ties up the request threads it has room for: when the queue is full the request is
+// rejected right away with 429, and a hash still waiting after 'timeout' fails with 503
+// Passwords are hashed with the work factor 'bcrypt-strength', a stored hash of another cost is rehashed on the next successful
+// login (see ApiUserDetailsService.updatePassword()), so the cost can be tuned without a migration
+@Component
+public class PasswordHasher implements PasswordEncoder {
+
+    // $2a$10$... (version, cost, salt and hash)
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final int strength;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    private final Counter rehashed;
+    private final Timer wait;
+    private final Timer encodeLatency;
+    private final Timer verifyLatency;
+
+    public PasswordHasher(MeterRegistry meterRegistry,
+            @Value("${security.password.bcrypt-strength:10}") int strength,
+            @Value("${security.password.hashing.threads:4}") int threads,
+            @Value("${security.password.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${security.password.hashing.timeout:5s}") Duration timeout) {
+        this.bcrypt = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.timeout = timeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("security.password.hashing.queue.size", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for a hashing worker")
+                .register(meterRegistry);
+        Gauge.builder("security.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashing workers busy")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("security.password.hashing.rejected")
+                .description("Password hashes rejected because the hashing pool was saturated")
+                .register(meterRegistry);
+        this.rehashed = Counter.builder("security.password.rehashed")
+                .description("Stored passwords rehashed on login with the current work factor")
+                .register(meterRegistry);
+        this.wait = Timer.builder("security.password.hashing.wait")
+                .description("Time a password hash waited for a hashing worker")
+                .register(meterRegistry);
+        this.encodeLatency = Timer.builder("security.password.hashing.latency")
+                .description("Time to hash or verify a password")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.verifyLatency = Timer.builder("security.password.hashing.latency")
+                .description("Time to hash or verify a password")
+                .tag("operation", "verify")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(() -> bcrypt.encode(rawPassword), encodeLatency);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash(() -> bcrypt.matches(rawPassword, encodedPassword), verifyLatency);
+    }
+
+    // Asked by the authentication provider after a successful login, a different cost (higher or lower) is rehashed
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        if (!matcher.find() || Integer.parseInt(matcher.group(1)) == strength) {
+            return false;
+        }
+        rehashed.increment();
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Run the hash on a worker and wait for it, the caller never runs BCrypt itself
+    private <T> T hash(Supplier<T> work, Timer latency) {
+        long queuedAt = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                wait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return latency.record(work);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ApiException("Too many password checks in progress, please try again shortly", HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // Skipped by the worker if it hasn't started yet
+            result.cancel(false);
+            throw new ApiException("The password check is taking longer than expected, please try again shortly", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+            throw new ApiException("The password check was interrupted, please try again", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.utils.AfterCommit;
+import com.cts.healthcare_appointment_system.utils.BoundedTtlCache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// The principals of the authenticated requests, keyed by email, so a request doesn't query the user it's made by
+// A miss loads a projection (no User entity), entries expire after 'ttl' and the least recently used are evicted past 'max-size'
+// UserService invalidates the principal of a user whose credentials change or who is deleted; on other replicas the TTL
+// bounds how long the old principal is served
+@Component
+public class PrincipalCache {
+
+    private final UserRepository userRepo;
+    private final BoundedTtlCache<String, UserPrincipal> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer loadTimer;
+
+    public PrincipalCache(UserRepository userRepo, MeterRegistry meterRegistry,
+            @Value("${security.principal-cache.max-size:10000}") int maxSize,
+            @Value("${security.principal-cache.ttl:5m}") Duration ttl) {
+        this.userRepo = userRepo;
+        this.cache = new BoundedTtlCache<>(maxSize, ttl);
+
+        this.hits = Counter.builder("security.principal.cache.requests")
+                .description("Principal lookups of authenticated requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("security.principal.cache.requests")
+                .description("Principal lookups of authenticated requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("security.principal.cache.load")
+                .description("Time to load a principal missing from the cache")
+                .register(meterRegistry);
+        Gauge.builder("security.principal.cache.size", cache, BoundedTtlCache::size)
+                .description("Cached principals")
+                .register(meterRegistry);
+    }
+
+    // Empty if there is no user with this email (e.g. deleted since the token was issued)
+    public Optional<UserPrincipal> get(String email) {
+        UserPrincipal principal = cache.get(email);
+        if (principal != null) {
+            hits.increment();
+            return Optional.of(principal);
+        }
+
+        misses.increment();
+        // Absent users aren't cached, a token of a deleted user is rare
+        principal = loadTimer.record(() -> userRepo.findPrincipalByEmail(email).orElse(null));
+        if (principal != null) {
+            cache.put(email, principal);
+        }
+        return Optional.ofNullable(principal);
+    }
+
+    // Drop the principal once the surrounding transaction commits (a load before the commit would cache the old row again)
+    public void invalidate(String email) {
+        AfterCommit.run(() -> cache.invalidate(email));
+    }
+}
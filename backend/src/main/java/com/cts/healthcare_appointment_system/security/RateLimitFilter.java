@@ -0,0 +1,65 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Rejects the requests of a client over its rate limit (see RateLimiter) with 429 and a Retry-After header, before they reach
+// authorization and the controllers
+// Added to the security chain right after JwtAuthenticationFilter (not a bean, so it isn't registered with the servlet container too):
+// a client is the user id of a verified token, or the remote address for unauthenticated requests (login, registration, password change)
+// Behind a load balancer the remote address is the client's only with server.forward-headers-strategy set (see application.yml)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Optional<Duration> retryAfter = rateLimiter.check(request.getMethod(), path, client(request));
+
+        if (retryAfter.isPresent()) {
+            // Whole seconds, rounded up so the client doesn't come back too early
+            long seconds = Math.max(1, (retryAfter.get().toMillis() + 999) / 1000);
+
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+            response.setContentType("application/json");
+
+            String jsonResponse = "{ \"error\": \"Too Many Requests\", "
+                    + "\"message\": \"Rate limit exceeded, retry in " + seconds + " seconds\", "
+                    + "\"timestamp\": \"" + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "\" }";
+
+            response.getWriter().write(jsonResponse);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private String client(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof UserPrincipal principal) {
+            return "user:" + principal.userId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,16 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// The routes of the 'security.rate-limit' section of application.yml (see RateLimiter)
+@ConfigurationProperties(prefix = "security.rate-limit")
+public record RateLimitProperties(@DefaultValue List<Route> routes) {
+
+    // Requests matching 'method' (any when not set) and the 'path' pattern: bursts of 'capacity', refilled at 'capacity' per 'period'
+    public record Route(String name, String method, String path, int capacity, Duration period) {
+    }
+}
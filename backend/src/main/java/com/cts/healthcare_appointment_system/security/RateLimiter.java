@@ -0,0 +1,82 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.cts.healthcare_appointment_system.utils.TokenBuckets;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Per-client rate limits of the routes in 'security.rate-limit.routes', the first route matching a request applies
+// (requests matching no route are not limited); every route has its own token bucket per client
+// The buckets live in memory, so each replica enforces the limits on its own share of the traffic
+@Component
+public class RateLimiter {
+
+    private final List<RouteLimit> routes;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.routes = properties.routes().stream()
+                .map(route -> new RouteLimit(route, meterRegistry))
+                .toList();
+    }
+
+    // Take a token of the client's bucket for the route of the request, empty when the request may go ahead,
+    // otherwise the time until the client may call the route again
+    public Optional<Duration> check(String method, String path, String client) {
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (RouteLimit route : routes) {
+            if (route.matches(method, pathContainer)) {
+                Duration retryAfter = route.buckets.tryAcquire(client);
+                if (retryAfter.isZero()) {
+                    return Optional.empty();
+                }
+                route.rejected.increment();
+                return Optional.of(retryAfter);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Drop the buckets of the clients which were idle long enough to refill them
+    @Scheduled(fixedDelayString = "${security.rate-limit.eviction-interval:1m}", initialDelayString = "${security.rate-limit.eviction-interval:1m}")
+    public void evictIdleBuckets() {
+        routes.forEach(route -> route.buckets.evictFull());
+    }
+
+    private static class RouteLimit {
+
+        private final String method;
+        private final PathPattern pattern;
+        private final TokenBuckets<String> buckets;
+        private final Counter rejected;
+
+        RouteLimit(RateLimitProperties.Route route, MeterRegistry meterRegistry) {
+            this.method = route.method();
+            this.pattern = PathPatternParser.defaultInstance.parse(route.path());
+            this.buckets = new TokenBuckets<>(route.capacity(), route.period());
+
+            Gauge.builder("security.rate-limit.buckets", buckets, TokenBuckets::size)
+                    .description("Clients with a token bucket for the route")
+                    .tag("route", route.name())
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("security.rate-limit.rejected")
+                    .description("Requests rejected because their client was over the route's rate limit")
+                    .tag("route", route.name())
+                    .register(meterRegistry);
+        }
+
+        boolean matches(String requestMethod, PathContainer path) {
+            return (method == null || method.equalsIgnoreCase(requestMethod)) && pattern.matches(path);
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.cts.healthcare_appointment_system.security;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -13,18 +20,21 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import com.cts.healthcare_appointment_system.services.ApiUserDetailsService;
+import com.cts.healthcare_appointment_system.utils.KeysetCursor;
 
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
 
     @Autowired
@@ -33,6 +43,12 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Value("${notifications.dead-letters.operators:}")
+    private Set<String> deadLetterOperators;
+
     @Bean
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(csrf -> csrf.disable())
@@ -57,11 +73,16 @@ public class SecurityConfig {
                                 .requestMatchers(HttpMethod.DELETE, "/availabilities/**").hasAuthority("DOCTOR")
                                 .requestMatchers(HttpMethod.POST, "/availabilities").hasAuthority("DOCTOR")
                                 .requestMatchers("/availabilities").authenticated()
-                                .requestMatchers("/availabilities/**").authenticated())
+                                .requestMatchers("/availabilities/**").authenticated()
+                                .requestMatchers("/waitlist").authenticated()
+                                .requestMatchers("/waitlist/**").authenticated()
+                                .requestMatchers("/notifications/**").access(operatorsOnly()))
                 .formLogin(formLogin -> formLogin.disable())
                 .sessionManagement(
                         sessionManagement -> sessionManagement.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Right after the token is verified, so authenticated requests are limited per user
+                .addFilterAfter(new RateLimitFilter(rateLimiter), JwtAuthenticationFilter.class);
 
         http.exceptionHandling(handling -> handling
                 .authenticationEntryPoint(new JwtAuthenticationEntryPoint()));
@@ -69,6 +90,19 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // The dead letters list the failed emails of every user, only the accounts in 'notifications.dead-letters.operators' manage them
+    private AuthorizationManager<RequestAuthorizationContext> operatorsOnly() {
+        Set<String> operators = deadLetterOperators.stream()
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        return (authentication, context) -> {
+            Authentication auth = authentication.get();
+            boolean operator = auth != null && auth.getPrincipal() instanceof UserPrincipal principal
+                    && operators.contains(principal.email().toLowerCase(Locale.ROOT));
+            return new AuthorizationDecision(operator);
+        };
+    }
+
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration config = new CorsConfiguration();
@@ -82,6 +116,9 @@ public class SecurityConfig {
         // Allowed Headers
         config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
 
+        // Headers readable by the frontend (cursor of the next page)
+        config.setExposedHeaders(List.of(KeysetCursor.NEXT_CURSOR_HEADER));
+
         //Allow credentials (for JWT authentication)
         config.setAllowCredentials(true);
 
@@ -92,11 +129,6 @@ public class SecurityConfig {
 
     }
 
-    @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
     @Bean
     AuthenticationManager authenticationManager(AuthenticationConfiguration configuration) throws Exception {
         return configuration.getAuthenticationManager();
@@ -107,6 +139,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setPasswordEncoder(passwordEncoder);
         provider.setUserDetailsService(apiUserDetailsService);
+        // Stores the rehash of a password whose work factor differs from the configured one (see PasswordHasher)
+        provider.setUserDetailsPasswordService(apiUserDetailsService);
         return provider;
     }
 }
@@ -0,0 +1,171 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.crypto.KeyGenerator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.models.JobLease;
+import com.cts.healthcare_appointment_system.models.SigningKey;
+import com.cts.healthcare_appointment_system.repositories.SigningKeyRepository;
+import com.cts.healthcare_appointment_system.services.JobLeaseService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+// Keeps the JWT signing keys in the jwt_signing_keys table, shared by every replica, and the JwtKeyRing in sync with it
+// Each key signs for 'rotation-period', then verifies the tokens it signed until they expire ('token-validity')
+// The next key is published 'publish-ahead' before it starts signing (by the replica holding the rotation lease),
+// so every replica has loaded it, through its 'refresh-interval' reload, before it sees a token signed with it
+@Slf4j
+@Component
+public class SigningKeyManager {
+
+    public static final String KEY_ROTATION = "jwt-key-rotation";
+
+    private static final Duration FIRST_KEY_POLL_INTERVAL = Duration.ofMillis(500);
+    private static final Duration FIRST_KEY_TIMEOUT = Duration.ofSeconds(30);
+
+    private final SigningKeyRepository keyRepo;
+    private final JobLeaseService leaseService;
+    private final JwtKeyRing keyRing;
+    private final Duration rotationPeriod;
+    private final Duration publishAhead;
+    private final Duration tokenValidity;
+
+    public SigningKeyManager(SigningKeyRepository keyRepo, JobLeaseService leaseService, JwtKeyRing keyRing, MeterRegistry meterRegistry,
+            @Value("${security.jwt.keys.rotation-period:7d}") Duration rotationPeriod,
+            @Value("${security.jwt.keys.publish-ahead:1h}") Duration publishAhead,
+            @Value("${security.jwt.keys.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${security.jwt.token-validity:7d}") Duration tokenValidity) {
+        this.keyRepo = keyRepo;
+        this.leaseService = leaseService;
+        this.keyRing = keyRing;
+        this.rotationPeriod = rotationPeriod;
+        this.publishAhead = publishAhead;
+        this.tokenValidity = tokenValidity;
+
+        if (publishAhead.compareTo(refreshInterval.multipliedBy(2)) < 0) {
+            log.warn("security.jwt.keys.publish-ahead ({}) should be at least twice the refresh-interval ({}), replicas may not know a new key when it starts signing", publishAhead, refreshInterval);
+        }
+        Gauge.builder("security.jwt.keys", keyRing, JwtKeyRing::size)
+                .description("JWT keys loaded for verification")
+                .register(meterRegistry);
+    }
+
+    // A fresh database gets a key signing right away (no replica has issued tokens yet)
+    // Replicas starting together all find the table empty: only the holder of the rotation lease creates the key,
+    // the others wait for it, so a single key signs
+    @PostConstruct
+    public void init() {
+        long deadline = System.nanoTime() + FIRST_KEY_TIMEOUT.toNanos();
+        LocalDateTime now = LocalDateTime.now();
+        List<SigningKey> keys = keyRepo.findByExpiresAtAfter(now);
+
+        while (keys.isEmpty()) {
+            Optional<JobLease> lease = leaseService.tryAcquire(KEY_ROTATION);
+            if (lease.isPresent()) {
+                try {
+                    // It may have been created while we waited for the lease
+                    now = LocalDateTime.now();
+                    if (keyRepo.findByExpiresAtAfter(now).isEmpty()) {
+                        keyRepo.save(generate(now, now.plus(rotationPeriod), now.plus(rotationPeriod).plus(tokenValidity)));
+                        log.info("Created the first JWT signing key");
+                    }
+                } finally {
+                    leaseService.release(lease.get());
+                }
+            } else if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("No JWT signing key was created within " + FIRST_KEY_TIMEOUT + " by the replica holding the " + KEY_ROTATION + " lease");
+            } else {
+                sleep(FIRST_KEY_POLL_INTERVAL);
+            }
+
+            now = LocalDateTime.now();
+            keys = keyRepo.findByExpiresAtAfter(now);
+        }
+        keyRing.load(keys, now);
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.keys.refresh-interval:5m}", initialDelayString = "${security.jwt.keys.refresh-interval:5m}")
+    public void refresh() {
+        try {
+            rotate();
+        } catch (RuntimeException e) {
+            log.error("JWT key rotation failed, it's retried on the next refresh", e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        keyRing.load(keyRepo.findByExpiresAtAfter(now), now);
+    }
+
+    // Publish the next key once the latest one retires within 'publish-ahead', and drop the expired ones
+    void rotate() {
+        if (!needsNextKey(LocalDateTime.now())) {
+            return;
+        }
+
+        // Another replica is rotating
+        Optional<JobLease> lease = leaseService.tryAcquire(KEY_ROTATION);
+        if (lease.isEmpty()) {
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // It may have been published while we waited for the lease
+            if (!needsNextKey(now)) {
+                return;
+            }
+
+            // Never signing before every replica had 'publish-ahead' to load it, the current key keeps signing until then
+            LocalDateTime activatesAt = latestRetirement(now).filter(at -> at.isAfter(now.plus(publishAhead))).orElse(now.plus(publishAhead));
+            SigningKey next = generate(activatesAt, activatesAt.plus(rotationPeriod), activatesAt.plus(rotationPeriod).plus(tokenValidity));
+            keyRepo.save(next);
+            int expired = keyRepo.deleteExpired(now);
+
+            log.info("Published JWT signing key {}, signing from {} ({} expired keys removed)", next.getKid(), activatesAt, expired);
+        } finally {
+            leaseService.release(lease.get());
+        }
+    }
+
+    public static SigningKey generate(LocalDateTime activatesAt, LocalDateTime retiresAt, LocalDateTime expiresAt) {
+        try {
+            KeyGenerator keyGen = KeyGenerator.getInstance("HmacSHA256");
+            String secret = Base64.getEncoder().encodeToString(keyGen.generateKey().getEncoded());
+            return new SigningKey(UUID.randomUUID().toString(), secret, activatesAt, retiresAt, expiresAt, LocalDateTime.now());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the first JWT signing key", e);
+        }
+    }
+
+    private boolean needsNextKey(LocalDateTime now) {
+        return latestRetirement(now).map(at -> !at.isAfter(now.plus(publishAhead))).orElse(true);
+    }
+
+    private Optional<LocalDateTime> latestRetirement(LocalDateTime now) {
+        return keyRepo.findByExpiresAtAfter(now).stream().map(SigningKey::getRetiresAt).max(Comparator.naturalOrder());
+    }
+}
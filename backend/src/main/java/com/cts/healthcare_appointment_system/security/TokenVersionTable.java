@@ -0,0 +1,124 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.dto.UserTokenVersion;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.utils.AfterCommit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Current token version of every user, so the stateless mode ('security.jwt.stateless') can revoke tokens without a lookup:
+// a token is accepted only if its version is the user's current one (the version is bumped on a password change,
+// and a deleted user has none)
+// The table is two sorted int arrays (ids and versions, binary searched), reloaded every 'version-refresh-interval'
+// Changes made on this replica apply right away through a small overlay, other replicas see them on their next refresh
+// Users registered after the last refresh (an id above any loaded so far, ids are never reused) are trusted until the next one
+@Slf4j
+@Component
+public class TokenVersionTable {
+
+    // Overlay value of a deleted user
+    private static final int DELETED = -1;
+
+    private final UserRepository userRepo;
+    private final boolean enabled;
+    private final Map<Integer, Integer> overlay = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot;
+
+    public TokenVersionTable(UserRepository userRepo, MeterRegistry meterRegistry,
+            @Value("${security.jwt.stateless:false}") boolean enabled) {
+        this.userRepo = userRepo;
+        this.enabled = enabled;
+        Gauge.builder("security.token.versions.size", this, table -> table.snapshot == null ? 0 : table.snapshot.ids.length)
+                .description("Users in the token version table")
+                .register(meterRegistry);
+    }
+
+    // Loaded before serving requests, until then the stateless mode falls back to the principal lookup
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${security.jwt.version-refresh-interval:30s}", initialDelayString = "${security.jwt.version-refresh-interval:30s}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        List<UserTokenVersion> versions = userRepo.findAllTokenVersions();
+        int[] ids = new int[versions.size()];
+        int[] tokenVersions = new int[versions.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = versions.get(i).userId();
+            tokenVersions[i] = versions.get(i).tokenVersion();
+        }
+        // Kept across reloads, so deleting the newest user doesn't make its id look unknown (i.e. newly registered)
+        int highestId = Math.max(snapshot == null ? 0 : snapshot.highestId, ids.length == 0 ? 0 : ids[ids.length - 1]);
+        Snapshot loaded = new Snapshot(ids, tokenVersions, highestId);
+        snapshot = loaded;
+
+        // Local changes the reload has caught up with (or gone past, after a later change on another replica) aren't needed anymore
+        overlay.entrySet().removeIf(e -> e.getValue() == DELETED ? loaded.version(e.getKey()) == null : caughtUp(loaded.version(e.getKey()), e.getValue()));
+
+        log.debug("Loaded the token versions of {} users", ids.length);
+    }
+
+    public boolean isReady() {
+        return enabled && snapshot != null;
+    }
+
+    // Whether a token with this version is still valid for the user
+    public boolean isCurrent(int userId, int tokenVersion) {
+        Integer local = overlay.get(userId);
+        Snapshot current = snapshot;
+        Integer version = current.version(userId);
+        if (local != null) {
+            if (local == DELETED) {
+                return false;
+            }
+            // Versions only go up, the newer of the two is current
+            return (caughtUp(version, local) ? version : local) == tokenVersion;
+        }
+
+        if (version == null) {
+            return userId > current.highestId;
+        }
+        return version == tokenVersion;
+    }
+
+    private static boolean caughtUp(Integer loaded, int local) {
+        return loaded != null && loaded >= local;
+    }
+
+    // The user's credentials changed, once the surrounding transaction commits
+    public void versionChanged(int userId, int tokenVersion) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> overlay.put(userId, tokenVersion));
+    }
+
+    public void userDeleted(int userId) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> overlay.put(userId, DELETED));
+    }
+
+    private record Snapshot(int[] ids, int[] versions, int highestId) {
+
+        Integer version(int userId) {
+            int i = Arrays.binarySearch(ids, userId);
+            return i < 0 ? null : versions[i];
+        }
+    }
+}
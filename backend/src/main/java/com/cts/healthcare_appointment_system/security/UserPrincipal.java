@@ -0,0 +1,31 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+
+// Lightweight snapshot of an authenticated user, enough to authorize a request (no password, no associations)
+// 'tokenVersion' changes with the user's credentials
+public record UserPrincipal(int userId, String email, UserRole role, int tokenVersion) implements UserDetails {
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    // Requests are authenticated by their token, never by a password
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
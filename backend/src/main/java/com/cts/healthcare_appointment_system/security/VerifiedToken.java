@@ -0,0 +1,19 @@
+package com.cts.healthcare_appointment_system.security;
+
+import java.util.Date;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+
+// The claims of a token whose signature and expiry were checked (see JwtUtils.verify())
+// userId, role and tokenVersion are null in tokens issued before they were added
+public record VerifiedToken(String userEmail, Date expiration, Integer userId, UserRole role, Integer tokenVersion) {
+
+    // Whether the token carries everything needed to authorize a request without a lookup
+    public boolean isSelfContained() {
+        return userId != null && role != null && tokenVersion != null;
+    }
+
+    public UserPrincipal toPrincipal() {
+        return new UserPrincipal(userId, userEmail, role, tokenVersion);
+    }
+}
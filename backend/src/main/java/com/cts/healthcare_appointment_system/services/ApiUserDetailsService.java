@@ -2,6 +2,7 @@ package com.cts.healthcare_appointment_system.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -9,8 +10,11 @@ import org.springframework.stereotype.Service;
 import com.cts.healthcare_appointment_system.models.User;
 import com.cts.healthcare_appointment_system.repositories.UserRepository;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Service
-public class ApiUserDetailsService implements UserDetailsService{
+public class ApiUserDetailsService implements UserDetailsService, UserDetailsPasswordService{
 
     @Autowired
     private UserRepository userRepo;
@@ -26,4 +30,16 @@ public class ApiUserDetailsService implements UserDetailsService{
         return new ApiUserDetails(user);
     }
 
+    // Store the rehash made on a successful login when the work factor changed (see PasswordHasher)
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        if (userRepo.rehashPassword(user.getUsername(), user.getPassword(), newPassword) == 0) {
+            log.debug("Password of user with email: {} changed during the login, rehash skipped", user.getUsername());
+        } else {
+            log.debug("Rehashed the password of user with email: {}", user.getUsername());
+        }
+        // Only used as the principal of the login's authentication, which doesn't keep the password
+        return user;
+    }
+
 }
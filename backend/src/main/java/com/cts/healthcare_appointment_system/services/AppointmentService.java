@@ -3,8 +3,8 @@ package com.cts.healthcare_appointment_system.services;
 import java.time.LocalDateTime;
 import java.util.List;
 
-import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Direction;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -17,8 +17,10 @@ import com.cts.healthcare_appointment_system.models.Appointment;
 import com.cts.healthcare_appointment_system.models.Availability;
 import com.cts.healthcare_appointment_system.models.User;
 import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
+import com.cts.healthcare_appointment_system.repositories.AppointmentSpecifications;
 import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
 import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.utils.KeysetCursor;
 
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
@@ -33,58 +35,48 @@ public class AppointmentService {
     private AvailabilityRepository availabilityRepo;
     private UserRepository userRepo;
     private NotificationService notificationService;
+    private SlotHoldService slotHoldService;
+    private ApplicationEventPublisher eventPublisher;
+    private SendAppointmentReminderService reminderService;
 
     // GET methods
-    // Get all appointments
-    public ResponseEntity<List<Appointment>> getAllAppointments(int patientId, int doctorId, String patientName, String doctorName, LocalDateTime timeSlotStart, LocalDateTime timeSlotEnd, String status) {
-        List<Appointment> appointments = appointmentRepo.findAll(Sort.by(Direction.DESC, "timeSlotStart"));
-
-        // Filter by request params
-        if(patientId != 0){
-            // As, the associated patient or doctor can be NULL (may be they have deleted their account), checking not NULL to avoid NULL pointer exception
-            appointments = appointments.stream().filter(a -> a.getPatient() != null).filter(a -> a.getPatient().getUserId() == patientId).toList();
-        }
-        if(doctorId != 0){
-            appointments = appointments.stream().filter(a -> a.getDoctor() != null).filter(a -> a.getDoctor().getUserId() == doctorId).toList();
-        }
-        
-        if(patientName != null){
-            if (!patientName.trim().equals("")) {
-                appointments = appointments.stream().filter(a -> a.getPatient() != null).filter(a -> a.getPatient().getName().toLowerCase().startsWith(patientName.trim().toLowerCase())).toList();
-            } 
-        }
-
-        if(doctorName != null){
-            if (!doctorName.trim().equals("")) {
-                appointments = appointments.stream().filter(a -> a.getDoctor() != null).filter(a -> a.getDoctor().getName().toLowerCase().startsWith(doctorName.trim().toLowerCase())).toList();
-            } 
-        }
-
-        if (timeSlotStart != null) {
-            appointments = appointments.stream().filter(a -> a.getTimeSlotStart().isAfter(timeSlotStart) || a.getTimeSlotStart().isEqual(timeSlotStart)).toList();
-        }
-
-        if (timeSlotEnd != null) {
-            appointments = appointments.stream().filter(a -> a.getTimeSlotEnd().isBefore(timeSlotEnd) || a.getTimeSlotEnd().isEqual(timeSlotEnd)).toList();
-        }
+    // Get all appointments (latest first), keyset paginated when a page size or a cursor is given
+    public ResponseEntity<List<Appointment>> getAllAppointments(int patientId, int doctorId, String patientName, String doctorName, LocalDateTime timeSlotStart, LocalDateTime timeSlotEnd, String status, String cursor, Integer size) {
+        boolean paginated = size != null || cursor != null;
+        int pageSize = KeysetCursor.clampPageSize(size == null ? 0 : size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
 
+        AppointmentStatus appointmentStatus = null;
         if (status != null) {
             if (status.equalsIgnoreCase("cancelled")) {
-                appointments = appointments.stream().filter(a -> a.getStatus() == AppointmentStatus.CANCELLED).toList();
+                appointmentStatus = AppointmentStatus.CANCELLED;
             } else if (status.equalsIgnoreCase("booked")) {
-                appointments = appointments.stream().filter(a -> a.getStatus() == AppointmentStatus.BOOKED).toList();
+                appointmentStatus = AppointmentStatus.BOOKED;
             } else if (status.equalsIgnoreCase("completed")) {
-                appointments = appointments.stream().filter(a -> a.getStatus() == AppointmentStatus.COMPLETED).toList();
+                appointmentStatus = AppointmentStatus.COMPLETED;
             } else {
                 throw new ApiException("Invalid status provided: " + status, HttpStatus.BAD_REQUEST);
             }
         }
 
+        // All the filters run in the database, one extra row is fetched to know whether a next page exists
+        Specification<Appointment> spec = AppointmentSpecifications.search(patientId, doctorId, patientName, doctorName, timeSlotStart, timeSlotEnd, appointmentStatus, after);
+        List<Appointment> appointments = paginated
+                ? appointmentRepo.findBy(spec, q -> q.sortBy(AppointmentSpecifications.KEYSET_SORT).limit(pageSize + 1).all())
+                : appointmentRepo.findBy(spec, q -> q.sortBy(AppointmentSpecifications.KEYSET_SORT).all());
+
         if (appointments.isEmpty()) {
             throw new ApiException("No appointments found", HttpStatus.BAD_REQUEST);
         }
 
-        return ResponseEntity.status(HttpStatus.OK).body(appointments);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (paginated && appointments.size() > pageSize) {
+            appointments = appointments.subList(0, pageSize);
+            Appointment last = appointments.get(pageSize - 1);
+            response.header(KeysetCursor.NEXT_CURSOR_HEADER, new KeysetCursor(last.getTimeSlotStart(), last.getAppointmentId()).encode());
+        }
+
+        return response.body(appointments);
     }
 
     // Get appointment by id
@@ -100,6 +92,13 @@ public class AppointmentService {
     // Save an appointment
     @Transactional
     public ResponseEntity<Appointment> saveAppointment(AppointmentDTO dto) {
+        Appointment appointment = bookAppointment(dto);
+
+        return ResponseEntity.status(HttpStatus.OK).body(appointment);
+    }
+
+    // Book an appointment in the caller's transaction (the BookingDispatcher applies a batch of bookings in one transaction)
+    public Appointment bookAppointment(AppointmentDTO dto) {
         int patientId = dto.getPatientId();
         int doctorId = dto.getDoctorId();
         LocalDateTime timeSlotStart = dto.getTimeSlotStart();
@@ -125,20 +124,22 @@ public class AppointmentService {
             throw new ApiException("Sorry, the slot is not available", HttpStatus.BAD_REQUEST);
         }
 
-        List<Appointment> prevAppointments = patient.getPatientAppointments();
-
-        // Check whether the timeslot overlaps
-        for (Appointment ap : prevAppointments) {
-            // Only for the booked appointments, check whether the time slot overlaps
-            if(ap.getStatus() == AppointmentStatus.BOOKED){
-                if ((timeSlotStart.isEqual(ap.getTimeSlotStart())) || (timeSlotStart.isAfter(ap.getTimeSlotStart()) && timeSlotStart.isBefore(ap.getTimeSlotEnd()))) {
-                    throw new ApiException("Appoinment slot overlaps", HttpStatus.BAD_REQUEST);
-                } else if ((timeSlotEnd.isEqual(ap.getTimeSlotEnd())) || (timeSlotEnd.isAfter(ap.getTimeSlotStart()) && timeSlotEnd.isBefore(ap.getTimeSlotEnd()))) {
-                    throw new ApiException("Appoinment slot overlaps", HttpStatus.BAD_REQUEST);
-                } else if (timeSlotStart.isBefore(ap.getTimeSlotStart()) && timeSlotEnd.isAfter(ap.getTimeSlotEnd())) {
-                    throw new ApiException("Appoinment slot overlaps", HttpStatus.BAD_REQUEST);
-                }
-            }
+        // Only the holder can book a slot on hold
+        slotHoldService.checkBookable(availability.getAvailabilityId(), patientId);
+
+        // Check whether the timeslot overlaps a booked appointment of the patient (or of the doctor)
+        LocalDateTime earliestStart = timeSlotStart.minus(AvailabilityOverlapDetector.MAX_SLOT_DURATION);
+        if (appointmentRepo.existsOverlappingForPatient(patientId, AppointmentStatus.BOOKED, earliestStart, timeSlotStart, timeSlotEnd)) {
+            throw new ApiException("Appoinment slot overlaps", HttpStatus.BAD_REQUEST);
+        }
+        if (appointmentRepo.existsOverlappingForDoctor(doctorId, AppointmentStatus.BOOKED, earliestStart, timeSlotStart, timeSlotEnd)) {
+            throw new ApiException("Doctor already has an appointment in this time slot", HttpStatus.BAD_REQUEST);
+        }
+
+        // Claim the slot atomically, only one of the concurrent bookings can flip it from available to unavailable
+        // (the check above only fails fast, it can't protect against two bookings reading the slot as free at once)
+        if (availabilityRepo.claimSlot(availability.getAvailabilityId()) == 0) {
+            throw new ApiException("Sorry, the slot is not available", HttpStatus.BAD_REQUEST);
         }
 
         Appointment appointment = new Appointment();
@@ -148,59 +149,53 @@ public class AppointmentService {
         appointment.setTimeSlotEnd(timeSlotEnd);
         appointment.book();
 
-        availability.setAvailable(false);
-
-        doctor.getDoctorAppointments().add(appointment);
-        patient.getPatientAppointments().add(appointment);
-
-        userRepo.save(patient);
-        userRepo.save(doctor);
-
-        availabilityRepo.save(availability);
-
+        // The appointment owns the associations, so the patient's and doctor's appointment collections are never loaded
         appointmentRepo.save(appointment);
+        slotHoldService.release(availability.getAvailabilityId());
+        reminderService.scheduleReminder(appointment);
 
-        log.info("Created new appointment for doctor with id: {} and patient with id: {}", doctor.getUserId(), patient.getUserId());
-
-        // Send appointment booked email
+        // Queue appointment booked email, sent once the booking commits
         notificationService.sendBookedEmail(appointment);
 
-        return ResponseEntity.status(HttpStatus.OK).body(appointment);
+        log.info("Created new appointment for doctor with id: {} and patient with id: {}", doctor.getUserId(), patient.getUserId());
+
+        return appointment;
     }
 
     // PUT methods
     // Cancel an appointment
     @Transactional
     public ResponseEntity<Appointment> cancelAppointment(int id) {
-        Appointment appointment = appointmentRepo.findById(id).orElse(null);
-        if (appointment == null) {
-            throw new ApiException("Invalid appointment with id: " + id, HttpStatus.BAD_REQUEST);
-        }
+        LocalDateTime now = LocalDateTime.now();
 
-        if(appointment.getConsultation() != null){
-            throw new ApiException("Can't cancel an appointment after consultation is given.", HttpStatus.BAD_REQUEST);
+        // Conditional UPDATE, only a BOOKED appointment without consultation can be cancelled
+        if (appointmentRepo.updateStatusIfNoConsultation(id, AppointmentStatus.BOOKED, AppointmentStatus.CANCELLED) == 0) {
+            Appointment current = appointmentRepo.findById(id).orElse(null);
+            if (current == null) {
+                throw new ApiException("Invalid appointment with id: " + id, HttpStatus.BAD_REQUEST);
+            }
+            if (current.getConsultation() != null) {
+                throw new ApiException("Can't cancel an appointment after consultation is given.", HttpStatus.BAD_REQUEST);
+            }
+            if (current.getStatus() == AppointmentStatus.COMPLETED) {
+                throw new ApiException("Can't cancel a completed appointment", HttpStatus.BAD_REQUEST);
+            }
+            throw new ApiException("Appointment with id: " + id + " is already cancelled", HttpStatus.BAD_REQUEST);
         }
 
-        if (appointment.getStatus() != AppointmentStatus.COMPLETED) {
-            appointment.cancel();
-        } else {
-            throw new ApiException("Can't cancel a completed appointment", HttpStatus.BAD_REQUEST);
-        }
-        int doctorId = appointment.getDoctor().getUserId();
-        LocalDateTime timeSlotStart = appointment.getTimeSlotStart();
-        LocalDateTime timeSlotEnd = appointment.getTimeSlotEnd();
+        // Make the availability slot available, if it is cancelled before end (same statement batch)
+        boolean released = availabilityRepo.releaseSlotOfAppointment(id, now) > 0;
 
-        Availability availability = availabilityRepo.findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(doctorId, timeSlotStart, timeSlotEnd).orElse(null);
+        // Read the appointment only for the response and the email (the status is synced, in case it was already loaded in this transaction)
+        Appointment appointment = appointmentRepo.findById(id).orElseThrow();
+        appointment.cancel();
 
-        // Make the availability slot available, if it is cancelled before end
-        if (timeSlotEnd.isAfter(LocalDateTime.now())) {
-            if(availability != null){
-                availability.setAvailable(true);   // Mark the slot available
-                availabilityRepo.save(availability);
-            }
-        }
+        reminderService.cancelReminder(id);
 
-        appointmentRepo.save(appointment);
+        // Offer the released slot to the waitlist, once the cancellation commits
+        if (released) {
+            eventPublisher.publishEvent(new SlotReleasedEvent(appointment.getDoctor().getUserId(), appointment.getTimeSlotStart(), appointment.getTimeSlotEnd()));
+        }
 
         log.info("Cancelled an appointment with id: {}", appointment.getAppointmentId());
 
@@ -213,34 +208,30 @@ public class AppointmentService {
     // Complete an appointment
     @Transactional
     public ResponseEntity<Appointment> completeAppointment(int id) {
-        Appointment appointment = appointmentRepo.findById(id).orElse(null);
-
-        if (appointment == null) {
-            throw new ApiException("Invalid appointment with id: " + id, HttpStatus.BAD_REQUEST);
-        }
-
-        if(appointment.getStatus() == AppointmentStatus.CANCELLED){
-            throw new ApiException("Can't mark a cancelled appointment as completed", HttpStatus.BAD_REQUEST);
-        }
-
-        int doctorId = appointment.getDoctor().getUserId();
-        LocalDateTime timeSlotStart = appointment.getTimeSlotStart();
-        LocalDateTime timeSlotEnd = appointment.getTimeSlotEnd();
+        LocalDateTime now = LocalDateTime.now();
 
-        Availability availability = availabilityRepo.findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(doctorId, timeSlotStart, timeSlotEnd).orElse(null);
-
-        // If the appointment already started?
-        if (appointment.getTimeSlotStart().isBefore(LocalDateTime.now())) {
-            appointment.complete();   // Mark as complete
-            if(availability != null){
-                availability.setAvailable(false);   // Make the slot unavailable
-                availabilityRepo.save(availability);
+        // Conditional UPDATE, only a BOOKED appointment which already started can be completed
+        if (appointmentRepo.updateStatusIfStarted(id, AppointmentStatus.BOOKED, AppointmentStatus.COMPLETED, now) == 0) {
+            Appointment current = appointmentRepo.findById(id).orElse(null);
+            if (current == null) {
+                throw new ApiException("Invalid appointment with id: " + id, HttpStatus.BAD_REQUEST);
+            }
+            if (current.getStatus() == AppointmentStatus.CANCELLED) {
+                throw new ApiException("Can't mark a cancelled appointment as completed", HttpStatus.BAD_REQUEST);
+            }
+            if (current.getStatus() == AppointmentStatus.COMPLETED) {
+                throw new ApiException("Appointment with id: " + id + " is already completed", HttpStatus.BAD_REQUEST);
             }
-        } else {
             throw new ApiException("Can't mark as complete an appointment before it has started", HttpStatus.BAD_REQUEST);
         }
 
-        appointmentRepo.save(appointment);
+        // Make the slot unavailable (same statement batch)
+        availabilityRepo.claimSlotOfAppointment(id);
+
+        // Read the appointment only for the response and the email
+        Appointment appointment = appointmentRepo.findById(id).orElseThrow();
+        appointment.complete();
+        reminderService.cancelReminder(id);
 
         log.info("Completed an appointment with id: {}", appointment.getAppointmentId());
 
@@ -250,4 +241,3 @@ public class AppointmentService {
         return ResponseEntity.status(HttpStatus.OK).body(appointment);
     }
 }
-
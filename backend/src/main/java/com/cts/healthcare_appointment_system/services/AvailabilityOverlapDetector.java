@@ -0,0 +1,28 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+
+import lombok.AllArgsConstructor;
+
+// Answers "does [start, end) overlap an existing slot of the doctor?" with one bounded range query on idx_availabilities_doctor_start_end
+// The database is the authority (slots written by other replicas are seen), the callers serialize the slot changes of a doctor
+// by locking the doctor's row first (see UserRepository.lockById()), so two concurrent changes can't both pass the check
+@Component
+@AllArgsConstructor
+public class AvailabilityOverlapDetector {
+
+    // Longest allowed availability slot (see AvailabilityService.checkForValidDuration())
+    public static final Duration MAX_SLOT_DURATION = Duration.ofHours(3);
+
+    private final AvailabilityRepository availabilityRepo;
+
+    // Check whether [start, end) overlaps any slot of the doctor, ignoring the slot with id 'excludeId' (the one being edited)
+    public boolean overlaps(int doctorId, LocalDateTime start, LocalDateTime end, int excludeId) {
+        return availabilityRepo.existsOverlappingSlot(doctorId, excludeId, start.minus(MAX_SLOT_DURATION), start, end);
+    }
+}
@@ -4,8 +4,7 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
-import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -20,7 +19,9 @@ import com.cts.healthcare_appointment_system.models.Availability;
 import com.cts.healthcare_appointment_system.models.User;
 import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
 import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.AvailabilitySpecifications;
 import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.utils.KeysetCursor;
 
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
@@ -35,44 +36,43 @@ public class AvailabilityService {
     private final AppointmentRepository appointmentRepo;
     private final UserRepository userRepo;
     private final NotificationService notificationService;
+    private final AvailabilityOverlapDetector overlapDetector;
+    private final SendAppointmentReminderService reminderService;
 
     // GET methods
-    // Get all availabilities 
-    public ResponseEntity<List<Availability>> getAllAvailabilities(int doctorId, String namePrefix, LocalDateTime timeSlotStart, LocalDateTime timeSlotEnd, String isAvailable) {
-        List<Availability> availabilities = availabilityRepo.findAll(Sort.by(Direction.ASC, "timeSlotStart"));
-
-        // Filter by query params
-        if (doctorId != 0) {
-            availabilities = availabilities.stream().filter(a -> a.getDoctor().getUserId() == doctorId).toList();
-        }
-
-        if (namePrefix != null) {
-            if (!namePrefix.trim().equals("")) {
-                availabilities = availabilities.stream().filter(a -> a.getDoctor().getName().toLowerCase().startsWith(namePrefix.trim().toLowerCase())).toList();
-            }
-        }
+    // Get all availabilities (sorted by timeSlotStart), keyset paginated when a page size or a cursor is given
+    public ResponseEntity<List<Availability>> getAllAvailabilities(int doctorId, String namePrefix, LocalDateTime timeSlotStart, LocalDateTime timeSlotEnd, String isAvailable, String cursor, Integer size) {
+        boolean paginated = size != null || cursor != null;
+        int pageSize = KeysetCursor.clampPageSize(size == null ? 0 : size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
 
+        Boolean available = null;
         if (isAvailable != null) {
             if (isAvailable.equalsIgnoreCase("true")) {
-                availabilities = availabilities.stream().filter(a -> a.isAvailable()).toList();
+                available = true;
             } else if (isAvailable.equalsIgnoreCase("false")) {
-                availabilities = availabilities.stream().filter(a -> !a.isAvailable()).toList();
+                available = false;
             }
         }
 
-        if (timeSlotStart != null) {
-            availabilities = availabilities.stream().filter(a -> a.getTimeSlotStart().isAfter(timeSlotStart) || a.getTimeSlotStart().isEqual(timeSlotStart)).toList();
-        }
-
-        if (timeSlotEnd != null) {
-            availabilities = availabilities.stream().filter(a -> a.getTimeSlotEnd().isBefore(timeSlotEnd) || a.getTimeSlotEnd().isEqual(timeSlotEnd)).toList();
-        }
+        // All the filters run in the database, one extra row is fetched to know whether a next page exists
+        Specification<Availability> spec = AvailabilitySpecifications.search(doctorId, namePrefix, available, timeSlotStart, timeSlotEnd, after);
+        List<Availability> availabilities = paginated
+                ? availabilityRepo.findBy(spec, q -> q.sortBy(AvailabilitySpecifications.KEYSET_SORT).limit(pageSize + 1).all())
+                : availabilityRepo.findBy(spec, q -> q.sortBy(AvailabilitySpecifications.KEYSET_SORT).all());
 
         if (availabilities.isEmpty()) {
             throw new ApiException("No availabilities found", HttpStatus.BAD_REQUEST);
         }
 
-        return ResponseEntity.status(HttpStatus.OK).body(availabilities);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (paginated && availabilities.size() > pageSize) {
+            availabilities = availabilities.subList(0, pageSize);
+            Availability last = availabilities.get(pageSize - 1);
+            response.header(KeysetCursor.NEXT_CURSOR_HEADER, new KeysetCursor(last.getTimeSlotStart(), last.getAvailabilityId()).encode());
+        }
+
+        return response.body(availabilities);
     }
 
     // Get availabilities by id
@@ -104,8 +104,8 @@ public class AvailabilityService {
             throw new ApiException("Can't update past availability slots", HttpStatus.BAD_REQUEST);
         }
 
-        // Find the associated doctor (if any)
-        User doctor = userRepo.findById(doctorId).orElse(null);
+        // Find the associated doctor (if any), locking its row so the slot changes of a doctor run one at a time
+        User doctor = userRepo.lockById(doctorId).orElse(null);
 
         // Check the doctor's correctness
         if (doctor == null || doctor.getRole() != UserRole.DOCTOR) {
@@ -126,19 +126,9 @@ public class AvailabilityService {
             throw new ApiException("Time slot must be at minimum " + 1 + " hr., and maximum " + 3 + " hrs.", HttpStatus.BAD_REQUEST);
         }
 
-        List<Availability> prevAvailabilities = doctor.getAvailabilities();
-
-        // Check whether the timeslot overlaps
-        for (Availability av : prevAvailabilities) {
-            if (av.getAvailabilityId() != availabilityId) {
-                if ((timeSlotStart.isEqual(av.getTimeSlotStart())) || (timeSlotStart.isAfter(av.getTimeSlotStart()) && timeSlotStart.isBefore(av.getTimeSlotEnd()))) {
-                    throw new ApiException("Availability slot overlaps", HttpStatus.BAD_REQUEST);
-                } else if ((timeSlotEnd.isEqual(av.getTimeSlotEnd())) || (timeSlotEnd.isAfter(av.getTimeSlotStart()) && timeSlotEnd.isBefore(av.getTimeSlotEnd()))) {
-                    throw new ApiException("Availability slot overlaps", HttpStatus.BAD_REQUEST);
-                } else if (timeSlotStart.isBefore(av.getTimeSlotStart()) && timeSlotEnd.isAfter(av.getTimeSlotEnd())) {
-                    throw new ApiException("Availability slot overlaps", HttpStatus.BAD_REQUEST);
-                }
-            }
+        // Check whether the timeslot overlaps (ignoring the slot being edited)
+        if (overlapDetector.overlaps(doctorId, timeSlotStart, timeSlotEnd, availabilityId)) {
+            throw new ApiException("Availability slot overlaps", HttpStatus.BAD_REQUEST);
         }
 
         // When the availability slot changes, the associated appointment (if any) must also change
@@ -147,11 +137,14 @@ public class AvailabilityService {
         // Change the associated appointment slots
         appointments.forEach(ap -> {
 
-            // Change time slot and send rescheduled email
-            if (ap.getStatus() == AppointmentStatus.BOOKED) {
+            // Change time slot and send rescheduled email (a retried edit leaves the slot as it is, and notifies nothing)
+            if (ap.getStatus() == AppointmentStatus.BOOKED
+                    && (!ap.getTimeSlotStart().equals(timeSlotStart) || !ap.getTimeSlotEnd().equals(timeSlotEnd))) {
+                ap.setRevision(ap.getRevision() + 1);
                 ap.setTimeSlotStart(timeSlotStart);
                 ap.setTimeSlotEnd(timeSlotEnd);
                 appointmentRepo.save(ap);
+                reminderService.scheduleReminder(ap);
                 notificationService.sendRescheduledEmail(ap);
             }
         });
@@ -176,8 +169,8 @@ public class AvailabilityService {
         LocalDateTime timeSlotStart = dto.getTimeSlotStart();
         LocalDateTime timeSlotEnd = dto.getTimeSlotEnd();
 
-        // Find the associated doctor (if any)
-        User doctor = userRepo.findById(doctorId).orElse(null);
+        // Find the associated doctor (if any), locking its row so the slot changes of a doctor run one at a time
+        User doctor = userRepo.lockById(doctorId).orElse(null);
         // Check the doctor's correctness
         if (doctor == null || doctor.getRole() != UserRole.DOCTOR) {
             throw new ApiException("Invalid doctor id: " + doctorId, HttpStatus.BAD_REQUEST);
@@ -192,30 +185,20 @@ public class AvailabilityService {
             throw new ApiException("Time slot must be at minimum " + 1 + " hrs, and maximum " + 3 + " hrs.", HttpStatus.BAD_REQUEST);
         }
 
-        // Fetch all the previous availabilities
-        List<Availability> prevAvailabilities = doctor.getAvailabilities();
-
         // Check whether the timeslot overlaps
-        for (Availability av : prevAvailabilities) {
-            if ((timeSlotStart.isEqual(av.getTimeSlotStart())) || (timeSlotStart.isAfter(av.getTimeSlotStart()) && timeSlotStart.isBefore(av.getTimeSlotEnd()))) {
-                throw new ApiException("Availability slot overlaps", HttpStatus.BAD_REQUEST);
-            } else if ((timeSlotEnd.isEqual(av.getTimeSlotEnd())) || (timeSlotEnd.isAfter(av.getTimeSlotStart()) && timeSlotEnd.isBefore(av.getTimeSlotEnd()))) {
-                throw new ApiException("Availability slot overlaps", HttpStatus.BAD_REQUEST);
-            } else if (timeSlotStart.isBefore(av.getTimeSlotStart()) && timeSlotEnd.isAfter(av.getTimeSlotEnd())) {
-                throw new ApiException("Availability slot overlaps", HttpStatus.BAD_REQUEST);
-            }
+        if (overlapDetector.overlaps(doctorId, timeSlotStart, timeSlotEnd, 0)) {
+            throw new ApiException("Availability slot overlaps", HttpStatus.BAD_REQUEST);
         }
 
         Availability newAvailability = new Availability();
         newAvailability.setTimeSlotStart(timeSlotStart);
         newAvailability.setTimeSlotEnd(timeSlotEnd);
 
-        // Associating the new availability with the doctor
-        doctor.addAvailability(newAvailability);
+        // Associating the new availability with the doctor (without loading the doctor's availabilities)
+        newAvailability.setDoctor(doctor);
 
-        // Save both entities
+        // Save the new availability
         availabilityRepo.save(newAvailability);
-        userRepo.save(doctor);
 
         log.info("Created an availability slot from {} to {} for doctor with id: {}", dto.getTimeSlotStart(), dto.getTimeSlotEnd(), dto.getDoctorId());
 
@@ -248,6 +231,7 @@ public class AvailabilityService {
                     if(ap.getConsultation() == null){
                         ap.cancel();
                         appointmentRepo.save(ap);
+                        reminderService.cancelReminder(ap.getAppointmentId());
                         log.info("Cancelled an appointment with id: {}", ap.getAppointmentId());
                         // Send cancellation mail
                         notificationService.sendCancellationEmail(ap);
@@ -258,10 +242,9 @@ public class AvailabilityService {
             });
         }
 
-        log.info("Deleted an availability slot with id: {} from {} to {} for doctor with id: {}", id, delAvailability.getTimeSlotStart(), delAvailability.getTimeSlotEnd(), delAvailability.getDoctor().getUserId());
-        
-        // Breaking the associativity with the doctor
-        delAvailability.getDoctor().removeAvailability(delAvailability);
+        int doctorId = delAvailability.getDoctor().getUserId();
+
+        log.info("Deleted an availability slot with id: {} from {} to {} for doctor with id: {}", id, delAvailability.getTimeSlotStart(), delAvailability.getTimeSlotEnd(), doctorId);
 
         // Deleting the availability
         availabilityRepo.delete(delAvailability);
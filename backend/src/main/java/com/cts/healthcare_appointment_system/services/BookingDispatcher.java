@@ -0,0 +1,254 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.healthcare_appointment_system.dto.AppointmentDTO;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Appointment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Serializes the bookings of each doctor through a fixed set of lanes (the doctor id is hashed to a lane, one thread per lane)
+// A lane drains up to 'max-batch' queued bookings and applies them in one transaction, so the bookings of a popular doctor
+// wait in an ordered queue instead of on row locks and connection-pool slots
+// A full lane rejects new bookings right away with 429
+@Slf4j
+@Component
+public class BookingDispatcher {
+
+    private final AppointmentService appointmentService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatch;
+    private final Duration timeout;
+    private final Lane[] lanes;
+    private volatile boolean stopped;
+
+    public BookingDispatcher(AppointmentService appointmentService, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+            @Value("${booking.dispatcher.lanes:8}") int laneCount,
+            @Value("${booking.dispatcher.queue-capacity:256}") int queueCapacity,
+            @Value("${booking.dispatcher.max-batch:32}") int maxBatch,
+            @Value("${booking.dispatcher.timeout:10s}") Duration timeout) {
+        this.appointmentService = appointmentService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatch = maxBatch;
+        this.timeout = timeout;
+
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, queueCapacity, meterRegistry);
+            lanes[i].thread.start();
+        }
+    }
+
+    // Queue the booking on the lane of its doctor, and wait for the lane to apply it
+    public ResponseEntity<Appointment> book(AppointmentDTO dto) {
+        Lane lane = lanes[Math.floorMod(dto.getDoctorId(), lanes.length)];
+        Booking booking = new Booking(dto);
+
+        if (stopped) {
+            throw shuttingDown();
+        }
+        if (!lane.queue.offer(booking)) {
+            lane.rejected.increment();
+            throw new ApiException("Too many booking requests for this doctor, please try again shortly", HttpStatus.TOO_MANY_REQUESTS);
+        }
+        // Queued while the lanes were being drained, nothing would apply it
+        if (stopped && lane.queue.remove(booking)) {
+            throw shuttingDown();
+        }
+
+        try {
+            Appointment appointment = booking.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return ResponseEntity.status(HttpStatus.OK).body(appointment);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // Skipped by the lane if it isn't applied yet, otherwise the booking may still go through
+            booking.result.cancel(false);
+            throw new ApiException("The booking is taking longer than expected, please check your appointments before retrying", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            booking.result.cancel(false);
+            throw new ApiException("The booking was interrupted, please check your appointments before retrying", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    // Fail the queued bookings right away (their requests would otherwise wait for the timeout), then stop the lanes
+    // A batch being applied is interrupted with its lane: if that rolls it back, its requests fail with the same 503
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+        List<Booking> pending = new ArrayList<>();
+        for (Lane lane : lanes) {
+            lane.queue.drainTo(pending);
+            lane.thread.interrupt();
+        }
+        ApiException error = shuttingDown();
+        pending.forEach(booking -> booking.result.completeExceptionally(error));
+
+        if (!pending.isEmpty()) {
+            log.warn("Booking dispatcher stopped with {} bookings still queued, they were rejected", pending.size());
+        }
+    }
+
+    private static ApiException shuttingDown() {
+        return new ApiException("The service is restarting, please try booking again shortly", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Apply a batch of bookings in one transaction, then complete the waiting requests
+    private void apply(Lane lane, List<Booking> batch) {
+        lane.batchSize.record(batch.size());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::bookQuietly));
+        } catch (RuntimeException e) {
+            if (interruptedByShutdown(e)) {
+                // Rolled back by the shutdown, the bookings fail like the queued ones
+                log.warn("Booking batch of {} on lane {} interrupted by the shutdown, it was rejected", batch.size(), lane.index);
+                batch.forEach(booking -> fail(booking, shuttingDown()));
+            } else {
+                // The whole batch was rolled back (e.g. a database error), apply each booking on its own so one bad booking doesn't fail the others
+                log.warn("Booking batch of {} on lane {} rolled back, retrying one by one: {}", batch.size(), lane.index, e.getMessage());
+
+                batch.forEach(booking -> {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> bookQuietly(booking));
+                    } catch (RuntimeException ex) {
+                        fail(booking, interruptedByShutdown(ex) ? shuttingDown() : ex);
+                    }
+                });
+            }
+        }
+
+        batch.forEach(booking -> {
+            if (booking.appointment != null) {
+                booking.result.complete(booking.appointment);
+            } else {
+                booking.result.completeExceptionally(booking.error);
+            }
+            lane.latency.record(System.nanoTime() - booking.enqueuedAt, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private static void fail(Booking booking, RuntimeException error) {
+        booking.appointment = null;
+        booking.error = error;
+    }
+
+    // The lane was interrupted in the transaction: an InterruptedException out of the callback comes back wrapped
+    // (UndeclaredThrowableException, as it's checked), or as whatever the JDBC driver made of it, so the stop flag decides
+    private boolean interruptedByShutdown(RuntimeException e) {
+        return stopped || e instanceof UndeclaredThrowableException ex && ex.getUndeclaredThrowable() instanceof InterruptedException;
+    }
+
+    // A rejected booking (ApiException) fails before writing anything, so the rest of the batch goes on in the same transaction
+    private void bookQuietly(Booking booking) {
+        booking.appointment = null;
+        booking.error = null;
+        try {
+            booking.appointment = appointmentService.bookAppointment(booking.dto);
+        } catch (ApiException e) {
+            booking.error = e;
+        }
+    }
+
+    private static class Booking {
+
+        private final AppointmentDTO dto;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Appointment> result = new CompletableFuture<>();
+
+        // Outcome, only touched by the lane thread
+        private Appointment appointment;
+        private RuntimeException error;
+
+        Booking(AppointmentDTO dto) {
+            this.dto = dto;
+        }
+    }
+
+    private class Lane {
+
+        private final int index;
+        private final BlockingQueue<Booking> queue;
+        private final Thread thread;
+        private final Counter rejected;
+        private final Timer latency;
+        private final DistributionSummary batchSize;
+
+        Lane(int index, int queueCapacity, MeterRegistry meterRegistry) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this::run, "booking-lane-" + index);
+            this.thread.setDaemon(true);
+
+            String lane = String.valueOf(index);
+            Gauge.builder("booking.dispatcher.queue.depth", queue, BlockingQueue::size)
+                    .description("Bookings waiting in the lane")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("booking.dispatcher.rejected")
+                    .description("Bookings rejected because the lane was full")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            this.latency = Timer.builder("booking.dispatcher.latency")
+                    .description("Time from queueing a booking to its outcome")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+            this.batchSize = DistributionSummary.builder("booking.dispatcher.batch.size")
+                    .description("Bookings applied per transaction")
+                    .tag("lane", lane)
+                    .register(meterRegistry);
+        }
+
+        private void run() {
+            List<Booking> batch = new ArrayList<>(maxBatch);
+            // The interrupt flag may have been consumed by the batch it interrupted
+            while (!stopped && !Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                queue.drainTo(batch, maxBatch - 1);
+
+                // Skip the bookings whose requests already gave up
+                batch.removeIf(booking -> booking.result.isCancelled());
+                if (!batch.isEmpty()) {
+                    try {
+                        apply(this, batch);
+                    } catch (RuntimeException e) {
+                        log.error("Booking lane {} failed to apply a batch", index, e);
+                        batch.forEach(booking -> booking.result.completeExceptionally(e));
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+}
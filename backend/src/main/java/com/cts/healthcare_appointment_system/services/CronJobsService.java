@@ -1,56 +1,124 @@
 package com.cts.healthcare_appointment_system.services;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
 import com.cts.healthcare_appointment_system.models.Appointment;
-import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.JobLease;
+import com.cts.healthcare_appointment_system.models.JobWatermark;
 import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
 import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.JobWatermarkRepository;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
-@AllArgsConstructor
 public class CronJobsService {
 
-    private AvailabilityRepository availabilityRepo;
-    private AppointmentRepository appointmentRepo;
-    private NotificationService notificationService;
+    public static final String SLOT_SWEEPER = "slot-sweeper";
 
-    // Find all the past time slots of the current date, and make them unavailable, automatically
-    @Scheduled(cron = "0 * * ? * *")   
+    private final AvailabilityRepository availabilityRepo;
+    private final AppointmentRepository appointmentRepo;
+    private final JobWatermarkRepository watermarkRepo;
+    private final NotificationService notificationService;
+    private final JobLeaseService leaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final int shards;
+
+    public CronJobsService(AvailabilityRepository availabilityRepo, AppointmentRepository appointmentRepo,
+            JobWatermarkRepository watermarkRepo, NotificationService notificationService, JobLeaseService leaseService,
+            PlatformTransactionManager transactionManager,
+            @Value("${jobs.slot-sweeper.shards:1}") int shards) {
+        this.availabilityRepo = availabilityRepo;
+        this.appointmentRepo = appointmentRepo;
+        this.watermarkRepo = watermarkRepo;
+        this.notificationService = notificationService;
+        this.leaseService = leaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+    }
+
+    // Make the slots which ended since the last run unavailable, and complete their booked appointments, automatically
+    // Only the window (watermark, now] is processed, with range UPDATEs on the end time, so slots spanning midnight
+    // and slots which ended while the application was down are caught up on the next run
+    // The doctors are split in 'shards' (doctor id modulo shards), each shard is swept by the replica holding its lease
+    @Scheduled(cron = "0 * * ? * *")
     public void markPastAvailabilitiesUnavailable(){
-        // Find all the past slots of today
-        List<Availability> availabilities = availabilityRepo.findPastSlotsOfToday();
-
-        // Make the past slots unavailable, and the associated appointments as completed
-        availabilities.forEach(av -> {
-            if(av.isAvailable()){
-                av.setAvailable(false);
-            }else{
-                List<Appointment> appointments = appointmentRepo.findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(av.getDoctor().getUserId(), av.getTimeSlotStart(), av.getTimeSlotEnd());
-
-                appointments.forEach(ap -> {
-                    if(ap.getStatus() == AppointmentStatus.BOOKED){
-                        // Mark the appointment as completed
-                        ap.complete();
-                        appointmentRepo.save(ap);
-
-                        log.info("Completed an appointment with id: {}", ap.getAppointmentId());
-
-                        // Send completion mail
-                        notificationService.sendCompletionEmail(ap);
-                    }
-                });
+        for (int shard = 0; shard < shards; shard++) {
+            String jobName = shardName(shard);
+
+            // Another replica is sweeping this shard
+            Optional<JobLease> lease = leaseService.tryAcquire(jobName);
+            if (lease.isEmpty()) {
+                continue;
             }
-            availabilityRepo.save(av);
-        });
 
+            int currentShard = shard;
+            try {
+                transactionTemplate.executeWithoutResult(status -> sweep(jobName, currentShard, lease.get()));
+            } catch (RuntimeException e) {
+                log.error("Sweep of {} failed, it's retried on the next run", jobName, e);
+            } finally {
+                leaseService.release(lease.get());
+            }
+        }
+    }
+
+    private void sweep(String jobName, int shard, JobLease lease) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // Still the holder, and nobody can take the lease over until this transaction ends
+        leaseService.checkFence(lease);
+
+        // Locked until commit, the window and the watermark move together
+        JobWatermark watermark = watermarkRepo.lockByJobName(jobName).orElseGet(() -> initialWatermark(jobName));
+        LocalDateTime from = watermark.getWatermark();
+        if (!now.isAfter(from)) {
+            return;
+        }
+
+        // Make the ended free slots unavailable
+        int slots = availabilityRepo.markEndedSlotsUnavailable(from, now, shards, shard);
+
+        // Mark the ended booked appointments as completed (locked, so a concurrent cancel/complete waits for this commit and then fails its compare-and-set)
+        // The users are loaded afterwards for the completion emails, without locking them
+        List<Integer> ended = appointmentRepo.lockEndedAppointments(AppointmentStatus.BOOKED, from, now, shards, shard);
+        List<Appointment> appointments = List.of();
+        if (!ended.isEmpty()) {
+            appointmentRepo.updateStatusOfAll(ended, AppointmentStatus.COMPLETED);
+            appointments = appointmentRepo.findWithUsersByIdIn(ended);
+        }
+
+        watermark.setWatermark(now);
+        watermarkRepo.save(watermark);
+
+        if (slots > 0 || !appointments.isEmpty()) {
+            log.info("Swept slots ended in ({}, {}] for {}: {} availabilities marked unavailable, {} appointments completed", from, now, jobName, slots, appointments.size());
+        }
+
+        // Queue completion mails, committed with the sweep
+        appointments.forEach(notificationService::sendCompletionEmail);
+    }
+
+    private String shardName(int shard) {
+        return shards == 1 ? SLOT_SWEEPER : SLOT_SWEEPER + "-" + shard + "-of-" + shards;
+    }
+
+    // A new shard starts from the unsharded watermark (or the beginning of today)
+    private JobWatermark initialWatermark(String jobName) {
+        LocalDateTime from = watermarkRepo.findById(SLOT_SWEEPER)
+                .map(JobWatermark::getWatermark)
+                .orElse(LocalDate.now().atStartOfDay());
+        return new JobWatermark(jobName, from);
     }
 }
@@ -0,0 +1,60 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.cts.healthcare_appointment_system.dto.DeadLetter;
+import com.cts.healthcare_appointment_system.enums.NotificationStatus;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.repositories.OutboxNotificationRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+// The dead letters are the FAILED rows of the outbox, replaying one puts it back in the queue of the dispatcher
+@Slf4j
+@Service
+@AllArgsConstructor
+public class DeadLetterService {
+
+    private static final int MAX_LISTED = 500;
+
+    private OutboxNotificationRepository outboxRepo;
+
+    // GET methods
+    // Get the latest dead letters
+    public ResponseEntity<List<DeadLetter>> getDeadLetters() {
+        List<DeadLetter> deadLetters = outboxRepo.findByStatusOrderByNotificationIdDesc(NotificationStatus.FAILED, Limit.of(MAX_LISTED))
+                .stream()
+                .map(n -> new DeadLetter(n.getNotificationId(), n.getType(), n.getAppointmentId(), n.getRecipientRole(),
+                        n.getAttempts(), n.getLastError(), n.getCreatedAt()))
+                .toList();
+        return ResponseEntity.status(HttpStatus.OK).body(deadLetters);
+    }
+
+    // POST methods
+    // Send a dead letter again
+    public ResponseEntity<Integer> replay(long notificationId) {
+        if (outboxRepo.replayFailed(notificationId, LocalDateTime.now()) == 0) {
+            throw new ApiException("No failed notification with id: " + notificationId, HttpStatus.NOT_FOUND);
+        }
+
+        log.info("Replaying the notification with id: {}", notificationId);
+
+        return ResponseEntity.status(HttpStatus.OK).body(1);
+    }
+
+    // Send every dead letter again (e.g. once the mail server is back)
+    public ResponseEntity<Integer> replayAll() {
+        int replayed = outboxRepo.replayFailed(null, LocalDateTime.now());
+
+        log.info("Replaying {} failed notifications", replayed);
+
+        return ResponseEntity.status(HttpStatus.OK).body(replayed);
+    }
+}
@@ -0,0 +1,161 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.DigestEvent;
+import com.cts.healthcare_appointment_system.models.JobLease;
+import com.cts.healthcare_appointment_system.models.JobWatermark;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
+import com.cts.healthcare_appointment_system.repositories.DigestEventRepository;
+import com.cts.healthcare_appointment_system.repositories.JobWatermarkRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Queues one email a day to every doctor who opted in to the digest: the next day's schedule, and the changes buffered
+// since the previous digest (see NotificationService), instead of an email per booking, cancellation, reschedule and reminder
+// The digests are queued and the buffer drained in one transaction, so a failed run loses nothing
+// The last day queued is kept in job_watermarks, so a second run for the same day (e.g. another replica's cron firing
+// after this one released the lease) queues nothing
+@Slf4j
+@Service
+public class DoctorDigestService {
+
+    public static final String DOCTOR_DIGEST = "doctor-digest";
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd hh:mm a", Locale.ENGLISH);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("hh:mm a", Locale.ENGLISH);
+
+    private final UserRepository userRepo;
+    private final AppointmentRepository appointmentRepo;
+    private final DigestEventRepository digestEventRepo;
+    private final JobWatermarkRepository watermarkRepo;
+    private final NotificationService notificationService;
+    private final JobLeaseService leaseService;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter queued;
+
+    public DoctorDigestService(UserRepository userRepo, AppointmentRepository appointmentRepo, DigestEventRepository digestEventRepo,
+            JobWatermarkRepository watermarkRepo, NotificationService notificationService, JobLeaseService leaseService, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.userRepo = userRepo;
+        this.appointmentRepo = appointmentRepo;
+        this.digestEventRepo = digestEventRepo;
+        this.watermarkRepo = watermarkRepo;
+        this.notificationService = notificationService;
+        this.leaseService = leaseService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queued = Counter.builder("notifications.digest.queued")
+                .description("Doctor digests queued in the outbox")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${notifications.digest.cron:0 0 18 * * *}")
+    public void sendDigests() {
+        // Another replica is sending them
+        Optional<JobLease> lease = leaseService.tryAcquire(DOCTOR_DIGEST);
+        if (lease.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> queueDigests(lease.get(), LocalDate.now().plusDays(1)));
+        } catch (RuntimeException e) {
+            log.error("Doctor digests failed, the changes stay buffered for the next run", e);
+        } finally {
+            leaseService.release(lease.get());
+        }
+    }
+
+    private void queueDigests(JobLease lease, LocalDate day) {
+        leaseService.checkFence(lease);
+
+        // Locked until commit, the digests of a day are queued once
+        JobWatermark watermark = watermarkRepo.lockByJobName(DOCTOR_DIGEST)
+                .orElseGet(() -> new JobWatermark(DOCTOR_DIGEST, day.minusDays(1).atStartOfDay()));
+        if (!watermark.getWatermark().isBefore(day.atStartOfDay())) {
+            log.info("Doctor digests for {} were already queued", day);
+            return;
+        }
+
+        // Only the events rendered in a digest are deleted: an event committed meanwhile (even with a lower id) goes in the next one
+        int digests = 0;
+        List<Long> rendered = new ArrayList<>();
+        for (User doctor : userRepo.findByRoleAndEmailDigestTrue(UserRole.DOCTOR)) {
+            List<Appointment> schedule = appointmentRepo.findScheduleOfDoctor(doctor.getUserId(), AppointmentStatus.BOOKED, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+            List<DigestEvent> changes = digestEventRepo.findByDoctorIdOrderByEventIdAsc(doctor.getUserId());
+            if (schedule.isEmpty() && changes.isEmpty()) {
+                continue;
+            }
+
+            notificationService.sendDigestEmail(doctor, day, render(schedule, changes));
+            changes.forEach(e -> rendered.add(e.getEventId()));
+            digests++;
+        }
+
+        if (!rendered.isEmpty()) {
+            digestEventRepo.deleteAllByIdInBatch(rendered);
+        }
+        // Changes of doctors who turned the digest off meanwhile are dropped
+        digestEventRepo.deleteOfDoctorsWithoutDigest();
+        watermark.setWatermark(day.atStartOfDay());
+        watermarkRepo.save(watermark);
+        queued.increment(digests);
+
+        log.info("Queued {} doctor digests for {}", digests, day);
+    }
+
+    private String render(List<Appointment> schedule, List<DigestEvent> changes) {
+        StringBuilder out = new StringBuilder(256 + 96 * (schedule.size() + changes.size()));
+
+        out.append("Schedule:\n");
+        if (schedule.isEmpty()) {
+            out.append("  No appointments\n");
+        }
+        for (Appointment a : schedule) {
+            out.append("  ").append(TIME_FORMAT.format(a.getTimeSlotStart())).append(" to ").append(TIME_FORMAT.format(a.getTimeSlotEnd()))
+                    .append(": ").append(a.getPatient() == null ? "(deleted patient)" : a.getPatient().getName())
+                    .append(" (Appointment Id:").append(a.getAppointmentId()).append(")\n");
+        }
+
+        out.append("\nChanges:\n");
+        if (changes.isEmpty()) {
+            out.append("  No changes\n");
+        }
+        for (DigestEvent e : changes) {
+            out.append("  ").append(label(e)).append(": ").append(e.getPatientName())
+                    .append(" on ").append(DATE_TIME_FORMAT.format(e.getTimeSlotStart()))
+                    .append(" (Appointment Id:").append(e.getAppointmentId()).append(")\n");
+        }
+
+        // The template adds its own line break
+        out.setLength(out.length() - 1);
+        return out.toString();
+    }
+
+    private static String label(DigestEvent e) {
+        return switch (e.getType()) {
+            case BOOKED -> "Booked";
+            case CANCELLED -> "Cancelled";
+            case RESCHEDULED -> "Rescheduled";
+            case COMPLETED -> "Completed";
+            default -> e.getType().name();
+        };
+    }
+}
@@ -1,5 +1,8 @@
 package com.cts.healthcare_appointment_system.services;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface EmailService {
-    void sendEmail(String recieverEmail, String subject, String body);
+    // Completes once the email is handed to the mail server, exceptionally if it couldn't be sent
+    CompletableFuture<Void> sendEmail(String recieverEmail, String subject, String body);
 }
@@ -1,9 +1,8 @@
 package com.cts.healthcare_appointment_system.services;
 
-import org.springframework.mail.MailSendException;
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import lombok.AllArgsConstructor;
@@ -14,11 +13,10 @@ import lombok.extern.slf4j.Slf4j;
 @AllArgsConstructor
 public class GmailService implements EmailService{
 
-    private JavaMailSender mailSender;
+    private MailBatcher mailBatcher;
 
     @Override
-    @Async
-    public void sendEmail(String recieverEmail, String subject, String body) {
+    public CompletableFuture<Void> sendEmail(String recieverEmail, String subject, String body) {
 
         SimpleMailMessage mail = new SimpleMailMessage();
 
@@ -31,12 +29,13 @@ public class GmailService implements EmailService{
         // Set body of the email
         mail.setText(body);
 
-        try {
-			// Send the email
-			mailSender.send(mail);
-		} catch (MailSendException e) {
-			log.error("Can't send mail to: {}, error message: {}", recieverEmail, e.getMessage());
-		}
+        // Sent with the next batch, a failure is reported to the caller (the outbox retries it)
+        return mailBatcher.send(mail)
+                .whenComplete((sent, e) -> {
+                    if (e != null) {
+                        log.error("Can't send mail to: {}, error message: {}", recieverEmail, e.getMessage());
+                    }
+                });
     }
     
 }
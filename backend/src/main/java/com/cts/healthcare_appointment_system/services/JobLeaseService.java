@@ -0,0 +1,93 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.cts.healthcare_appointment_system.models.JobLease;
+import com.cts.healthcare_appointment_system.repositories.JobLeaseRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Cluster-wide leases for the scheduled jobs, backed by the job_leases table
+// A replica runs a job (or a shard of it) only while it holds the lease; the lease expires after 'ttl',
+// so a crashed holder never blocks the job for longer than that
+// Expiry is decided by the database clock, so a replica whose clock runs ahead can't take over a live lease
+// Every acquisition increments the fencing token: a job checks its token in the transaction of its writes (checkFence),
+// so a holder that stalled past its lease can't commit over the replica that took the lease over
+@Slf4j
+@Service
+public class JobLeaseService {
+
+    private final JobLeaseRepository leaseRepo;
+    private final Duration ttl;
+    private final String owner;
+
+    public JobLeaseService(JobLeaseRepository leaseRepo,
+            @Value("${jobs.lease.ttl:5m}") Duration ttl,
+            @Value("${jobs.lease.owner:}") String owner) {
+        this.leaseRepo = leaseRepo;
+        this.ttl = ttl;
+        this.owner = owner.isBlank() ? defaultOwner() : owner;
+    }
+
+    // Try to take the lease of a job, empty if another replica holds it
+    public Optional<JobLease> tryAcquire(String jobName) {
+        // Taken before the lease starts in the database, so the holder's own deadline is never past the lease's
+        long startedAt = System.nanoTime();
+        long ttlMicros = ttl.toNanos() / 1000;
+        int acquired = leaseRepo.tryAcquire(jobName, owner, ttlMicros);
+
+        if (acquired == 0 && !leaseRepo.existsById(jobName)) {
+            try {
+                leaseRepo.create(jobName);
+            } catch (DataIntegrityViolationException e) {
+                // Created by another replica meanwhile
+            }
+            acquired = leaseRepo.tryAcquire(jobName, owner, ttlMicros);
+        }
+
+        if (acquired == 0) {
+            return Optional.empty();
+        }
+        return leaseRepo.findById(jobName)
+                .filter(lease -> owner.equals(lease.getOwner()))
+                .map(lease -> {
+                    lease.setDeadlineNanos(startedAt + ttl.toNanos());
+                    return lease;
+                });
+    }
+
+    public void release(JobLease lease) {
+        leaseRepo.release(lease.getJobName(), lease.getOwner(), lease.getFencingToken());
+    }
+
+    // Called in the transaction of the job's writes: fails (rolling them back) if the lease was taken over
+    // The lease row stays locked until commit, so it can't be taken over in between
+    public void checkFence(JobLease lease) {
+        long current = leaseRepo.lockByJobName(lease.getJobName()).map(JobLease::getFencingToken).orElse(-1L);
+        if (current != lease.getFencingToken()) {
+            throw new IllegalStateException("Lease of job " + lease.getJobName() + " was taken over (token " + lease.getFencingToken() + ", now " + current + ")");
+        }
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    private static String defaultOwner() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown-host";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
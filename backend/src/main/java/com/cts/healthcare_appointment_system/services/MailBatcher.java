@@ -0,0 +1,150 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Groups the outgoing emails so that a burst (a batch of the outbox, the reminders of an hour) shares SMTP sessions:
+// the messages arriving within 'window' of the first one, up to 'max-size', are handed to the mail server in one
+// JavaMailSender.send(...) call, which connects once and sends them all over the same transport
+// The batches are sent on the MailExecutor, each message still completes (or fails) on its own
+@Slf4j
+@Component
+public class MailBatcher {
+
+    private final JavaMailSender mailSender;
+    private final MailExecutor mailExecutor;
+    private final int maxSize;
+    private final Duration window;
+    private final BlockingQueue<PendingMail> queue;
+    private final Thread thread;
+    private final DistributionSummary batchSize;
+
+    public MailBatcher(JavaMailSender mailSender, MailExecutor mailExecutor, MeterRegistry meterRegistry,
+            @Value("${mail.batch.max-size:50}") int maxSize,
+            @Value("${mail.batch.window:50ms}") Duration window,
+            @Value("${mail.batch.queue-capacity:1000}") int queueCapacity) {
+        this.mailSender = mailSender;
+        this.mailExecutor = mailExecutor;
+        this.maxSize = maxSize;
+        this.window = window;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSize = DistributionSummary.builder("mail.batch.size")
+                .description("Emails sent per SMTP session")
+                .register(meterRegistry);
+
+        this.thread = new Thread(this::run, "mail-batcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Queue a message for the next batch, the future completes once the mail server accepted (or refused) it
+    public CompletableFuture<Void> send(SimpleMailMessage mail) {
+        PendingMail pending = new PendingMail(mail);
+        if (!queue.offer(pending)) {
+            pending.result.completeExceptionally(new RejectedExecutionException("Mail batch queue is full"));
+        }
+        return pending.result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        thread.interrupt();
+        // Whatever wasn't batched yet stays in the outbox
+        List<PendingMail> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(pending -> pending.result.completeExceptionally(new RejectedExecutionException("Mail batcher stopped")));
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<PendingMail> batch = new ArrayList<>(maxSize);
+            try {
+                batch.add(queue.take());
+
+                // Collect the rest of the batch, until it's full or the window closes
+                long deadline = System.nanoTime() + window.toNanos();
+                while (batch.size() < maxSize) {
+                    queue.drainTo(batch, maxSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingMail next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                batch.forEach(pending -> pending.result.completeExceptionally(new RejectedExecutionException("Mail batcher stopped")));
+                break;
+            }
+
+            dispatch(batch);
+        }
+    }
+
+    private void dispatch(List<PendingMail> batch) {
+        batchSize.record(batch.size());
+        SimpleMailMessage[] messages = batch.stream().map(pending -> pending.mail).toArray(SimpleMailMessage[]::new);
+
+        mailExecutor.submit(() -> complete(batch, messages)).whenComplete((done, e) -> {
+            // Rejected by the executor (or failed outside of the send), nothing of the batch went out
+            if (e != null) {
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            }
+        });
+    }
+
+    private void complete(List<PendingMail> batch, SimpleMailMessage[] messages) {
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            // Only the failed messages are reported (all of them if the connection itself failed)
+            Map<Object, Exception> failed = e.getFailedMessages();
+            batch.forEach(pending -> {
+                Exception error = failed.get(pending.mail);
+                if (error != null || failed.isEmpty()) {
+                    pending.result.completeExceptionally(error != null ? error : e);
+                } else {
+                    pending.result.complete(null);
+                }
+            });
+            log.warn("{} of {} emails of the batch failed", failed.isEmpty() ? batch.size() : failed.size(), batch.size());
+            throw e;
+        } catch (MailException e) {
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+            throw e;
+        }
+        batch.forEach(pending -> pending.result.complete(null));
+    }
+
+    private static class PendingMail {
+
+        private final SimpleMailMessage mail;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        PendingMail(SimpleMailMessage mail) {
+            this.mail = mail;
+        }
+    }
+}
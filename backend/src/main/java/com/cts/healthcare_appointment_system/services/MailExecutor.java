@@ -0,0 +1,156 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Runs the SMTP sends on a fixed pool of 'threads' workers with a queue of 'queue-capacity' sends, so a slow mail server
+// can't pile up threads or memory; when both are full the 'rejection-policy' applies:
+// - CALLER_RUNS: the caller sends it itself (the MailBatcher, so batching slows down to the pace of the mail server)
+// - DROP_TO_OUTBOX: the send fails right away, its notification stays in the outbox and is retried later
+// - BLOCK: the caller waits up to 'block-timeout' for room in the queue, then the send fails as above
+// On shutdown the queued sends are drained for up to 'drain-timeout', the rest fail (and stay in the outbox)
+@Slf4j
+@Component
+public class MailExecutor {
+
+    public enum RejectionPolicy {
+        CALLER_RUNS, DROP_TO_OUTBOX, BLOCK
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Duration drainTimeout;
+    private final Counter rejected;
+    private final Counter failures;
+    private final Timer latency;
+
+    public MailExecutor(MeterRegistry meterRegistry,
+            @Value("${mail.executor.threads:4}") int threads,
+            @Value("${mail.executor.queue-capacity:200}") int queueCapacity,
+            @Value("${mail.executor.rejection-policy:CALLER_RUNS}") RejectionPolicy rejectionPolicy,
+            @Value("${mail.executor.block-timeout:5s}") Duration blockTimeout,
+            @Value("${mail.executor.drain-timeout:30s}") Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mail-sender-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                rejectionHandler(rejectionPolicy, blockTimeout));
+
+        Gauge.builder("mail.executor.queue.size", executor, e -> e.getQueue().size())
+                .description("Sends waiting for a mail worker")
+                .register(meterRegistry);
+        Gauge.builder("mail.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Mail workers busy sending")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("mail.executor.rejected")
+                .description("Sends rejected because the mail executor was saturated")
+                .register(meterRegistry);
+        this.failures = Counter.builder("mail.send.failures")
+                .description("Sends which failed")
+                .register(meterRegistry);
+        this.latency = Timer.builder("mail.send.latency")
+                .description("Time to hand a batch of emails to the mail server")
+                .register(meterRegistry);
+    }
+
+    // Run a send on a mail worker (or on the caller, see the rejection policy), the future completes with its outcome
+    public CompletableFuture<Void> submit(Runnable send) {
+        SendTask task = new SendTask(send);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            task.result.completeExceptionally(e);
+        }
+        return task.result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Runnable> pending = executor.shutdownNow();
+        log.warn("Mail executor stopped with {} sends still queued, they are retried from the outbox", pending.size());
+        RejectedExecutionException stopped = new RejectedExecutionException("Mail executor stopped");
+        pending.forEach(task -> ((SendTask) task).result.completeExceptionally(stopped));
+    }
+
+    private RejectedExecutionHandler rejectionHandler(RejectionPolicy policy, Duration blockTimeout) {
+        return switch (policy) {
+            case CALLER_RUNS -> (task, executor) -> {
+                // Never run on the caller once stopped, the send would outlive the drain
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Mail executor stopped");
+                }
+                task.run();
+            };
+            case DROP_TO_OUTBOX -> (task, executor) -> {
+                throw new RejectedExecutionException("Mail executor saturated");
+            };
+            case BLOCK -> (task, executor) -> {
+                BlockingQueue<Runnable> queue = executor.getQueue();
+                try {
+                    if (executor.isShutdown() || !queue.offer(task, blockTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                        throw new RejectedExecutionException("Mail executor saturated for " + blockTimeout);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for the mail executor", e);
+                }
+            };
+        };
+    }
+
+    private class SendTask implements Runnable {
+
+        private final Runnable send;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        SendTask(Runnable send) {
+            this.send = send;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                send.run();
+                result.complete(null);
+            } catch (RuntimeException e) {
+                failures.increment();
+                result.completeExceptionally(e);
+            } finally {
+                latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
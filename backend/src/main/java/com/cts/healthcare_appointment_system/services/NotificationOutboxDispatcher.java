@@ -0,0 +1,318 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.dto.EmailMessage;
+import com.cts.healthcare_appointment_system.enums.NotificationStatus;
+import com.cts.healthcare_appointment_system.models.JobLease;
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+import com.cts.healthcare_appointment_system.repositories.OutboxNotificationRepository;
+import com.cts.healthcare_appointment_system.utils.CircuitBreaker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.internet.AddressException;
+import lombok.extern.slf4j.Slf4j;
+
+// Sends the notifications queued in the outbox, at least once
+// Each poll takes the outbox lease (one replica dispatches at a time), then renders and sends the due notifications
+// in batches of 'batch-size': a batch is sent concurrently and marked sent with one UPDATE
+// A poll stops starting batches once the lease has too little time left for one more, the next poll takes the lease again
+// A failed send is retried with exponential backoff ('retry-delay' doubled per attempt up to 'max-retry-delay', with jitter),
+// up to 'max-attempts' attempts, then the notification is marked FAILED (the dead letters, see DeadLetterService)
+// A notification which can never go out (it can't be rendered, its address is invalid, or the mail server rejected it
+// with a 5xx reply) is marked FAILED right away
+// Each recipient domain has a circuit breaker, counting only the failures to reach the mail server (connection errors
+// and timeouts): while it's open, its notifications are postponed without using up attempts
+// Sent notifications are kept for 'retention', then purged: until then their dedup key keeps them from being queued again
+@Slf4j
+@Component
+public class NotificationOutboxDispatcher {
+
+    public static final String NOTIFICATION_OUTBOX = "notification-outbox";
+
+    private final OutboxNotificationRepository outboxRepo;
+    private final NotificationRenderer renderer;
+    private final EmailService emailService;
+    private final JobLeaseService leaseService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration maxRetryDelay;
+    private final CircuitBreaker<String> circuitBreaker;
+    private final Duration sendTimeout;
+    private final Duration retention;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter postponed;
+    private final Timer batchTimer;
+
+    public NotificationOutboxDispatcher(OutboxNotificationRepository outboxRepo, NotificationRenderer renderer,
+            EmailService emailService, JobLeaseService leaseService, MeterRegistry meterRegistry,
+            @Value("${notifications.outbox.batch-size:100}") int batchSize,
+            @Value("${notifications.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${notifications.outbox.retry-delay:30s}") Duration retryDelay,
+            @Value("${notifications.outbox.max-retry-delay:1h}") Duration maxRetryDelay,
+            @Value("${notifications.outbox.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${notifications.outbox.circuit-breaker.open-duration:1m}") Duration openDuration,
+            @Value("${notifications.outbox.send-timeout:30s}") Duration sendTimeout,
+            @Value("${notifications.outbox.retention:7d}") Duration retention) {
+        this.outboxRepo = outboxRepo;
+        this.renderer = renderer;
+        this.emailService = emailService;
+        this.leaseService = leaseService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.circuitBreaker = new CircuitBreaker<>(failureThreshold, openDuration);
+        this.sendTimeout = sendTimeout;
+        this.retention = retention;
+
+        // Refreshed by the replica dispatching the outbox, on every poll
+        Gauge.builder("notifications.outbox.pending", pending, AtomicLong::get)
+                .description("Notifications waiting in the outbox")
+                .register(meterRegistry);
+        Gauge.builder("notifications.outbox.lag", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest pending notification")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.sent = Counter.builder("notifications.outbox.sent")
+                .description("Notifications sent from the outbox")
+                .register(meterRegistry);
+        this.failed = Counter.builder("notifications.outbox.failed")
+                .description("Failed notification send attempts")
+                .register(meterRegistry);
+        this.postponed = Counter.builder("notifications.outbox.postponed")
+                .description("Notifications postponed because the circuit of their recipient domain was open")
+                .register(meterRegistry);
+        Gauge.builder("notifications.outbox.circuits.open", circuitBreaker, CircuitBreaker::openCount)
+                .description("Recipient domains whose circuit is open")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("notifications.outbox.batch")
+                .description("Time to send a batch of notifications")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.outbox.poll-interval:1s}")
+    public void poll() {
+        // Another replica is dispatching the outbox
+        Optional<JobLease> lease = leaseService.tryAcquire(NOTIFICATION_OUTBOX);
+        if (lease.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Keep going while the batches come back full, and another batch can finish before the lease expires
+            int dispatched;
+            do {
+                dispatched = dispatchBatch();
+            } while (dispatched == batchSize && hasTimeForBatch(lease.get()));
+
+            refreshGauges();
+        } catch (RuntimeException e) {
+            log.error("Notification outbox dispatch failed, it's retried on the next poll", e);
+        } finally {
+            leaseService.release(lease.get());
+        }
+    }
+
+    // Idempotent, so every replica runs it without taking a lease
+    @Scheduled(fixedDelayString = "${notifications.outbox.purge-interval:1h}", initialDelayString = "${notifications.outbox.purge-interval:1h}")
+    public void purgeSent() {
+        int purged = outboxRepo.deleteSentBefore(LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} notifications sent more than {} ago", purged, retention);
+        }
+    }
+
+    // Send one batch of due notifications, returns how many were picked
+    int dispatchBatch() {
+        List<OutboxNotification> due = outboxRepo.findDue(NotificationStatus.PENDING, LocalDateTime.now(), Limit.of(batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        batchTimer.record(() -> {
+            // Start every send first, so they run concurrently, then collect the outcomes
+            // (null when the circuit of the recipient's domain is open, the notification is postponed instead)
+            List<CompletableFuture<Void>> results = new ArrayList<>(due.size());
+            due.forEach(n -> results.add(circuitBreaker.tryAcquire(domainOf(n)) ? send(n) : null));
+
+            long deadline = System.nanoTime() + sendTimeout.toNanos();
+            List<Long> sentIds = new ArrayList<>(due.size());
+            for (int i = 0; i < due.size(); i++) {
+                OutboxNotification n = due.get(i);
+                if (results.get(i) == null) {
+                    postpone(n);
+                    continue;
+                }
+                try {
+                    results.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    circuitBreaker.recordSuccess(domainOf(n));
+                    sentIds.add(n.getNotificationId());
+                } catch (ExecutionException e) {
+                    retryLater(n, e.getCause());
+                } catch (TimeoutException e) {
+                    // May still go out, in which case the retry sends it twice (at least once)
+                    retryLater(n, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    retryLater(n, e);
+                }
+            }
+
+            if (!sentIds.isEmpty()) {
+                outboxRepo.markSent(sentIds, LocalDateTime.now());
+                sent.increment(sentIds.size());
+            }
+        });
+
+        log.debug("Dispatched {} notifications from the outbox", due.size());
+        return due.size();
+    }
+
+    private CompletableFuture<Void> send(OutboxNotification n) {
+        EmailMessage message;
+        try {
+            message = renderer.render(n);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(new RenderException(e));
+        }
+        try {
+            return emailService.sendEmail(message.to(), message.subject(), message.body());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void retryLater(OutboxNotification n, Throwable error) {
+        failed.increment();
+
+        Integer replyCode = replyCode(error);
+        if (replyCode != null) {
+            // The mail server answered, so the domain is reachable whatever it said
+            circuitBreaker.recordSuccess(domainOf(n));
+        } else if (isTransportFailure(error)) {
+            circuitBreaker.recordFailure(domainOf(n));
+        } else {
+            // Never reached the mail server (e.g. a render error, a saturated mail executor), says nothing about the destination
+            circuitBreaker.release(domainOf(n));
+        }
+
+        boolean permanent = error instanceof RenderException
+                || (replyCode == null ? hasCause(error, AddressException.class) : replyCode >= 500);
+        boolean givingUp = permanent || n.getAttempts() + 1 >= maxAttempts;
+        NotificationStatus status = givingUp ? NotificationStatus.FAILED : NotificationStatus.PENDING;
+        Duration delay = backoff(n.getAttempts());
+        String message = String.valueOf(error);
+        if (message.length() > 1000) {
+            message = message.substring(0, 1000);
+        }
+        outboxRepo.markFailed(n.getNotificationId(), status, LocalDateTime.now().plus(delay), message);
+
+        if (givingUp) {
+            log.error("Gave up on notification with id: {} ({} to {}) after {} attempts: {}", n.getNotificationId(), n.getType(), n.getRecipientEmail(), n.getAttempts() + 1, message);
+        } else {
+            log.warn("Notification with id: {} failed, retrying in {}: {}", n.getNotificationId(), delay, message);
+        }
+    }
+
+    // A batch takes up to 'send-timeout' to send, plus as much again for rendering and the outbox queries
+    private boolean hasTimeForBatch(JobLease lease) {
+        return lease.remaining().compareTo(sendTimeout.multipliedBy(2)) > 0;
+    }
+
+    private void postpone(OutboxNotification n) {
+        postponed.increment();
+        Duration wait = circuitBreaker.remainingOpen(domainOf(n));
+        outboxRepo.postpone(n.getNotificationId(), LocalDateTime.now().plus(wait.isZero() ? retryDelay : wait));
+    }
+
+    // 'retry-delay' doubled per previous attempt, capped at 'max-retry-delay', with equal jitter (between half and all of it)
+    // so the notifications failed together by an outage don't all come back at once
+    Duration backoff(int previousAttempts) {
+        long max = maxRetryDelay.toMillis();
+        long delay = Math.min(max, retryDelay.toMillis() << Math.min(previousAttempts, 30));
+        if (delay < 0) {
+            delay = max;
+        }
+        long half = delay / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(delay - half + 1));
+    }
+
+    // The SMTP reply code of a failure reported by the mail server, null when it didn't answer (the cause chain follows
+    // the exceptions nested in a MessagingException)
+    private static Integer replyCode(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof SMTPAddressFailedException f) {
+                return f.getReturnCode();
+            }
+            if (e instanceof SMTPSenderFailedException f) {
+                return f.getReturnCode();
+            }
+            if (e instanceof SMTPSendFailedException f) {
+                return f.getReturnCode();
+            }
+        }
+        return null;
+    }
+
+    // The mail server couldn't be reached, or didn't answer in time
+    private static boolean isTransportFailure(Throwable error) {
+        return error instanceof TimeoutException || hasCause(error, IOException.class);
+    }
+
+    private static boolean hasCause(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (type.isInstance(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String domainOf(OutboxNotification n) {
+        String email = n.getRecipientEmail();
+        return email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    // The notification couldn't be rendered, sending it again won't help
+    private static class RenderException extends RuntimeException {
+
+        RenderException(RuntimeException cause) {
+            super("Can't render the notification: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void refreshGauges() {
+        pending.set(outboxRepo.countByStatus(NotificationStatus.PENDING));
+        LocalDateTime oldest = outboxRepo.findOldestCreatedAt(NotificationStatus.PENDING);
+        lagSeconds.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toSeconds()));
+    }
+}
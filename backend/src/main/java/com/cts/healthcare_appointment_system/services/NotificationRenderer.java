@@ -0,0 +1,54 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.format.DateTimeFormatter;
+
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.dto.EmailMessage;
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+import com.cts.healthcare_appointment_system.services.NotificationTemplates.Template;
+import com.cts.healthcare_appointment_system.utils.TextTemplate;
+
+import lombok.AllArgsConstructor;
+
+// Renders the email of an outbox notification from its template and the snapshot stored with it
+@Component
+@AllArgsConstructor
+public class NotificationRenderer {
+
+    // Immutable and thread-safe, shared by every render
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("hh:mm:ss a");
+
+    // Reused by each thread across renders, only its contents are copied out
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private NotificationTemplates templates;
+
+    public EmailMessage render(OutboxNotification n) {
+        Template template = templates.get(n.getType(), n.getRecipientRole());
+        if (template == null) {
+            throw new IllegalArgumentException("No template for " + n.getType() + " notifications to the " + n.getRecipientRole());
+        }
+
+        // In the order of NotificationTemplates.VARIABLES
+        String[] values = {
+            n.getPatientName(),
+            n.getDoctorName(),
+            String.valueOf(n.getAppointmentId()),
+            n.getTimeSlotStart().toLocalDate().toString(),
+            TIME_FORMAT.format(n.getTimeSlotStart()),
+            TIME_FORMAT.format(n.getTimeSlotEnd()),
+            n.getDetails() == null ? "" : n.getDetails()
+        };
+
+        return new EmailMessage(n.getRecipientEmail(), render(template.subject(), values), render(template.body(), values));
+    }
+
+    private String render(TextTemplate template, String[] values) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        out.ensureCapacity(template.literalLength() + 128);
+        template.renderTo(out, values);
+        return out.toString();
+    }
+}
@@ -1,146 +1,168 @@
 package com.cts.healthcare_appointment_system.services;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.cts.healthcare_appointment_system.enums.NotificationStatus;
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
 import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.DigestEvent;
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
 import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.DigestEventRepository;
+import com.cts.healthcare_appointment_system.repositories.OutboxNotificationRepository;
 
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
+// Queues the appointment emails in the notification outbox, in the caller's transaction
+// Nothing is sent here: a rolled back change never sends its email, and the NotificationOutboxDispatcher sends the committed ones
+// Rescheduled emails are held back for the coalescing 'window', so a burst of calendar edits only mails the final state:
+// a newer reschedule replaces the pending one, and a cancellation drops the pending reschedule (and reminder)
+// Doctors who opted in to the digest get no email per change: it's buffered for their daily digest (see DoctorDigestService)
 @Service
-@AllArgsConstructor
 public class NotificationService {
 
-    private EmailService service;
+    // Pending notifications of the same appointment and recipient, superseded by each type
+    private static final Map<NotificationType, List<NotificationType>> SUPERSEDES = Map.of(
+            NotificationType.RESCHEDULED, List.of(NotificationType.RESCHEDULED),
+            NotificationType.CANCELLED, List.of(NotificationType.RESCHEDULED, NotificationType.REMINDER));
+
+    private final OutboxNotificationRepository outboxRepo;
+    private final DigestEventRepository digestEventRepo;
+    private final Duration coalescingWindow;
+    private final Counter coalesced;
+    private final Counter digested;
+
+    public NotificationService(OutboxNotificationRepository outboxRepo, DigestEventRepository digestEventRepo, MeterRegistry meterRegistry,
+            @Value("${notifications.coalescing.window:2m}") Duration coalescingWindow) {
+        this.outboxRepo = outboxRepo;
+        this.digestEventRepo = digestEventRepo;
+        this.coalescingWindow = coalescingWindow;
+        this.coalesced = Counter.builder("notifications.coalesced")
+                .description("Pending notifications dropped for a newer one of the same appointment and recipient")
+                .register(meterRegistry);
+        this.digested = Counter.builder("notifications.digested")
+                .description("Doctor notifications folded into the daily digest instead of being emailed")
+                .register(meterRegistry);
+    }
 
-    
     public void sendReminderEmail(Appointment appointment){
-
-        User doctor = appointment.getDoctor();
-        User patient = appointment.getPatient();
-        int appointmentId = appointment.getAppointmentId();
-        LocalDate dateOfAppointment = appointment.getTimeSlotStart().toLocalDate();
-        String timeStartOfAppointment = formatTime(appointment.getTimeSlotStart().toLocalTime());
-        String timeEndOfAppointment = formatTime(appointment.getTimeSlotEnd().toLocalTime());
-
-        String subject = "Reminder: Upcoming Appointment";
-
-        String patientEmailBody = "Dear " + patient.getName() + "," + "\n\n" + "This is a friendly reminder of your upcoming appointment with Dr. " + doctor.getName() + "." + "\n\n" + "Appointment Id:" + appointmentId + "\nDate: " + dateOfAppointment + "\nTime: " + timeStartOfAppointment + " to " + timeEndOfAppointment + "\n\n" + "Please ensure you arrive on time." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
-
-        String doctorEmailBody = "Dear Dr. " + doctor.getName() + "," + "\n\n" + "This is a friendly reminder of your upcoming appointment with " + patient.getName() + "." + "\n\n" + "Appointment Id:" + appointmentId + "\nDate: " + dateOfAppointment + "\nTime: " + timeStartOfAppointment + " to " + timeEndOfAppointment + "\n\n" + "Please ensure you are available for the consultation." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
-
-        service.sendEmail(doctor.getEmail(), subject, doctorEmailBody);
-        service.sendEmail(patient.getEmail(), subject, patientEmailBody);
+        enqueue(NotificationType.REMINDER, appointment, UserRole.DOCTOR);
+        enqueue(NotificationType.REMINDER, appointment, UserRole.PATIENT);
     }
 
     public void sendCompletionEmail(Appointment appointment){
-
-        User doctor = appointment.getDoctor();
-        User patient = appointment.getPatient();
-        int appointmentId = appointment.getAppointmentId();
-        LocalDate dateOfAppointment = appointment.getTimeSlotStart().toLocalDate();
-        String timeStartOfAppointment = formatTime(appointment.getTimeSlotStart().toLocalTime());
-        String timeEndOfAppointment = formatTime(appointment.getTimeSlotEnd().toLocalTime());
-
-        String subject = "Appointment Completed";
-
-        String patientEmailBody = "Dear " + patient.getName() + "," + "\n\n" + "Your appointment with Dr. " + doctor.getName() + " on "+ dateOfAppointment + " at " + timeStartOfAppointment + " to " + timeEndOfAppointment + " (Appointment ID: " + appointmentId + ")" + " has been successfully completed.\n\n" + "If you need any further assistance or follow-up, please reach out to our clinic." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
-
-        String doctorEmailBody = "Dear Dr. " + doctor.getName() + "," + "\n\n" + "Your appointment with " + patient.getName() + " on "+ dateOfAppointment + " at " + timeStartOfAppointment + " to " + timeEndOfAppointment + " (Appointment ID: " + appointmentId + ")" + " has been successfully completed. Please give the needed consultation to the patient, if not given.\n\n" + "If you need any further assistance or follow-up, please reach out to our clinic." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
-
-        service.sendEmail(doctor.getEmail(), subject, doctorEmailBody);
-        service.sendEmail(patient.getEmail(), subject, patientEmailBody);
+        enqueue(NotificationType.COMPLETED, appointment, UserRole.DOCTOR);
+        enqueue(NotificationType.COMPLETED, appointment, UserRole.PATIENT);
     }
 
     public void sendCancellationEmail(Appointment appointment){
-
-        User doctor = appointment.getDoctor();
-        User patient = appointment.getPatient();
-        int appointmentId = appointment.getAppointmentId();
-        LocalDate dateOfAppointment = appointment.getTimeSlotStart().toLocalDate();
-        String timeStartOfAppointment = formatTime(appointment.getTimeSlotStart().toLocalTime());
-
-        String subject = "Appointment Cancelled";
-
-        String patientEmailBody = "Dear " + patient.getName() + ",\n\n" +
-        "We regret to inform you that your appointment with Dr. " + doctor.getName() + 
-        " on " + dateOfAppointment + " at " + timeStartOfAppointment + " (Appointment ID: " + appointmentId + ")" + " has been cancelled.\n\n" +
-        "If you have any questions or need assistance, please do not hesitate to contact us through our system.\n\n" +
-        "Thank you for your understanding.\n\n" +
-        "Best Regards,\n" +
-        "Healthcare Appointment System";
-
-        String doctorEmailBody = "Dear Dr. " + doctor.getName() + ",\n\n" +
-        "We regret to inform you that your appointment with " + patient.getName() + 
-        " on " + dateOfAppointment + " at " + timeStartOfAppointment + " (Appointment ID: " + appointmentId + ")" + " has been cancelled.\n\n" +
-        "If you have any questions or need assistance, please do not hesitate to contact us through our system.\n\n" +
-        "Thank you for your understanding.\n\n" +
-        "Best Regards,\n" +
-        "Healthcare Appointment System";
-
-        service.sendEmail(doctor.getEmail(), subject, doctorEmailBody);
-        service.sendEmail(patient.getEmail(), subject, patientEmailBody);
+        enqueue(NotificationType.CANCELLED, appointment, UserRole.DOCTOR);
+        enqueue(NotificationType.CANCELLED, appointment, UserRole.PATIENT);
     }
 
     public void sendBookedEmail(Appointment appointment){
-
-        User doctor = appointment.getDoctor();
-        User patient = appointment.getPatient();
-        int appointmentId = appointment.getAppointmentId();
-        LocalDate dateOfAppointment = appointment.getTimeSlotStart().toLocalDate();
-        String timeStartOfAppointment = formatTime(appointment.getTimeSlotStart().toLocalTime());
-        String timeEndOfAppointment = formatTime(appointment.getTimeSlotEnd().toLocalTime());
-
-        String subject = "Appointment Booked";
-
-        String patientEmailBody = "Dear " + patient.getName() + "," + "\n\n" + "Your appointment with Dr. " + doctor.getName() + " has been successfully booked.\n\n" + "Appointment Id:" + appointmentId + "\nDate: " + dateOfAppointment + "\nTime: " + timeStartOfAppointment + " to " + timeEndOfAppointment + "\n\n" + "Please ensure you arrive on time." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
-
-        String doctorEmailBody = "Dear Dr. " + doctor.getName() + "," + "\n\n" + "A new appointment has been booked with " + patient.getName() + ".\n\n" + "Appointment Id:" + appointmentId + "\nDate: " + dateOfAppointment + "\nTime: " + timeStartOfAppointment + " to " + timeEndOfAppointment + "\n\n" + "Please be prepared for the consultation." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
-
-        service.sendEmail(doctor.getEmail(), subject, doctorEmailBody);
-        service.sendEmail(patient.getEmail(), subject, patientEmailBody);
+        enqueue(NotificationType.BOOKED, appointment, UserRole.DOCTOR);
+        enqueue(NotificationType.BOOKED, appointment, UserRole.PATIENT);
     }
 
     public void sendRescheduledEmail(Appointment appointment){
-
-        User doctor = appointment.getDoctor();
-        User patient = appointment.getPatient();
-        int appointmentId = appointment.getAppointmentId();
-        LocalDate dateOfAppointment = appointment.getTimeSlotStart().toLocalDate();
-        String timeStartOfAppointment = formatTime(appointment.getTimeSlotStart().toLocalTime());
-        String timeEndOfAppointment = formatTime(appointment.getTimeSlotEnd().toLocalTime());
-
-        String subject = "Appointment Rescheduled";
-
-        String patientEmailBody = "Dear " + patient.getName() + "," + "\n\n" + "Your appointment with Dr. " + doctor.getName() + " has been rescheduled.\n\n" + "Appointment Id:" + appointmentId + "\nNew Date: " + dateOfAppointment + "\nNew Time: " + timeStartOfAppointment + " to " + timeEndOfAppointment + "\n\n" + "If you have any issues with the new timing, please contact us." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
-        
-        service.sendEmail(patient.getEmail(), subject, patientEmailBody);
+        enqueue(NotificationType.RESCHEDULED, appointment, UserRole.PATIENT);
+        // Doctors are only told of reschedules in their digest
+        if (appointment.getDoctor() != null && appointment.getDoctor().isEmailDigest()) {
+            enqueue(NotificationType.RESCHEDULED, appointment, UserRole.DOCTOR);
+        }
     }
 
     public void sendConsultationEmail(Appointment appointment){
-        User patient = appointment.getPatient();
-        User doctor = appointment.getDoctor();
-        int appointmentId = appointment.getAppointmentId();
-        LocalDate dateOfAppointment = appointment.getTimeSlotStart().toLocalDate();
-        String timeStartOfAppointment = formatTime(appointment.getTimeSlotStart().toLocalTime());
-        String timeEndOfAppointment = formatTime(appointment.getTimeSlotEnd().toLocalTime());
-
-        String subject = "Appointment Rescheduled";
-
-        String patientEmailBody = "Dear " + patient.getName() + "," + "\n\n" + "Dr. " + doctor.getName() + " has given valuable consultation for the appointment - \n\n" + "Appointment Id:" + appointmentId + "\nDate: " + dateOfAppointment + "\nTime: " + timeStartOfAppointment + " to " + timeEndOfAppointment + "\n\n" + "Please check it out and if you face any issues, please contact us." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
-        
-        service.sendEmail(patient.getEmail(), subject, patientEmailBody);
+        enqueue(NotificationType.CONSULTATION, appointment, UserRole.PATIENT);
     }
 
-    private String formatTime(LocalTime time){
-        DateTimeFormatter formmater = DateTimeFormatter.ofPattern("hh:mm:ss a");
-        return time.format(formmater);
+    private void enqueue(NotificationType type, Appointment appointment, UserRole role) {
+        User doctor = appointment.getDoctor();
+        User patient = appointment.getPatient();
+        // The patient or doctor may have been deleted meanwhile
+        if (doctor == null || patient == null) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (role == UserRole.DOCTOR && doctor.isEmailDigest()) {
+            buffer(type, appointment, now);
+            return;
+        }
+
+        User recipient = role == UserRole.DOCTOR ? doctor : patient;
+
+        List<NotificationType> superseded = SUPERSEDES.get(type);
+        if (superseded != null) {
+            int dropped = outboxRepo.deletePending(appointment.getAppointmentId(), role, superseded);
+            coalesced.increment(dropped);
+        }
+
+        OutboxNotification n = new OutboxNotification();
+        n.setType(type);
+        n.setAppointmentId(appointment.getAppointmentId());
+        n.setRecipientRole(role);
+        n.setRecipientEmail(recipient.getEmail());
+        n.setPatientName(patient.getName());
+        n.setDoctorName(doctor.getName());
+        n.setTimeSlotStart(appointment.getTimeSlotStart());
+        n.setTimeSlotEnd(appointment.getTimeSlotEnd());
+        // One notification of a kind per appointment, recipient and revision of the slot (a reschedule is a new one)
+        n.setDedupKey(type + ":" + appointment.getAppointmentId() + ":" + role + ":" + appointment.getRevision() + ":" + appointment.getTimeSlotStart());
+        n.setStatus(NotificationStatus.PENDING);
+        // Held back while later edits may still replace it
+        n.setAvailableAt(type == NotificationType.RESCHEDULED ? now.plus(coalescingWindow) : now);
+        n.setCreatedAt(now);
+
+        outboxRepo.enqueue(n);
     }
 
+    // Queue the daily digest of a doctor: the schedule of 'day' and the changes since the last digest, rendered in 'details'
+    public void sendDigestEmail(User doctor, LocalDate day, String details) {
+        LocalDateTime now = LocalDateTime.now();
+
+        OutboxNotification n = new OutboxNotification();
+        n.setType(NotificationType.DIGEST);
+        n.setRecipientRole(UserRole.DOCTOR);
+        n.setRecipientEmail(doctor.getEmail());
+        n.setDoctorName(doctor.getName());
+        n.setTimeSlotStart(day.atStartOfDay());
+        n.setTimeSlotEnd(day.plusDays(1).atStartOfDay());
+        n.setDetails(details);
+        // One digest per doctor and day
+        n.setDedupKey(NotificationType.DIGEST + ":" + doctor.getUserId() + ":" + day);
+        n.setStatus(NotificationStatus.PENDING);
+        n.setAvailableAt(now);
+        n.setCreatedAt(now);
+
+        outboxRepo.enqueue(n);
+    }
 
-
+    // Append the change to the digest buffer, reminders are dropped since the digest already lists the schedule
+    private void buffer(NotificationType type, Appointment appointment, LocalDateTime now) {
+        digested.increment();
+        if (type == NotificationType.REMINDER) {
+            return;
+        }
+
+        DigestEvent event = new DigestEvent();
+        event.setDoctorId(appointment.getDoctor().getUserId());
+        event.setType(type);
+        event.setAppointmentId(appointment.getAppointmentId());
+        event.setPatientName(appointment.getPatient().getName());
+        event.setTimeSlotStart(appointment.getTimeSlotStart());
+        event.setTimeSlotEnd(appointment.getTimeSlotEnd());
+        event.setCreatedAt(now);
+        digestEventRepo.save(event);
+    }
 }
@@ -0,0 +1,82 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.utils.TextTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+// The email templates, loaded and compiled once at startup from classpath:notifications/<type>-<role>.txt
+// A template file starts with a "Subject: ..." line and a blank line, the rest is the body
+// Placeholders: ${patientName}, ${doctorName}, ${appointmentId}, ${date}, ${startTime}, ${endTime}, ${details} (digests only)
+// Adding a template is adding a file (e.g. rescheduled-doctor.txt), no code change is needed
+@Slf4j
+@Component
+public class NotificationTemplates {
+
+    public static final List<String> VARIABLES = List.of("patientName", "doctorName", "appointmentId", "date", "startTime", "endTime", "details");
+
+    private static final String LOCATION = "classpath:notifications/*.txt";
+    private static final String SUBJECT_PREFIX = "Subject: ";
+
+    private final Map<NotificationType, Map<UserRole, Template>> templates = new EnumMap<>(NotificationType.class);
+
+    public NotificationTemplates() {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(LOCATION);
+            for (Resource resource : resources) {
+                load(resource);
+            }
+            log.info("Loaded {} notification templates", resources.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't load the notification templates", e);
+        }
+    }
+
+    // The template of a notification type for a recipient, null if there's none
+    public Template get(NotificationType type, UserRole role) {
+        Map<UserRole, Template> byRole = templates.get(type);
+        return byRole == null ? null : byRole.get(role);
+    }
+
+    private void load(Resource resource) throws IOException {
+        String fileName = resource.getFilename();
+        String name = fileName.substring(0, fileName.length() - ".txt".length());
+        int dash = name.lastIndexOf('-');
+        if (dash < 0) {
+            throw new IllegalStateException("Notification template " + fileName + " isn't named <type>-<role>.txt");
+        }
+        NotificationType type = NotificationType.valueOf(name.substring(0, dash).toUpperCase(Locale.ROOT));
+        UserRole role = UserRole.valueOf(name.substring(dash + 1).toUpperCase(Locale.ROOT));
+
+        String text = resource.getContentAsString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+        int headerEnd = text.indexOf("\n\n");
+        if (!text.startsWith(SUBJECT_PREFIX) || headerEnd < 0) {
+            throw new IllegalStateException("Notification template " + fileName + " must start with a '" + SUBJECT_PREFIX + "' line and a blank line");
+        }
+        String subject = text.substring(SUBJECT_PREFIX.length(), headerEnd);
+        String body = text.substring(headerEnd + 2);
+        // The file's final line break isn't part of the body
+        if (body.endsWith("\n")) {
+            body = body.substring(0, body.length() - 1);
+        }
+
+        Template template = new Template(TextTemplate.compile(subject, VARIABLES), TextTemplate.compile(body, VARIABLES));
+        templates.computeIfAbsent(type, t -> new EnumMap<>(UserRole.class)).put(role, template);
+    }
+
+    public record Template(TextTemplate subject, TextTemplate body) {
+    }
+}
@@ -1,38 +1,147 @@
 package com.cts.healthcare_appointment_system.services;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.cts.healthcare_appointment_system.dto.AppointmentSlot;
 import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
 import com.cts.healthcare_appointment_system.models.Appointment;
 import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
+import com.cts.healthcare_appointment_system.utils.AfterCommit;
+import com.cts.healthcare_appointment_system.utils.HashedTimingWheel;
 
-import lombok.AllArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 
+// Sends one reminder per booked appointment, 'lead-time' before it starts
+// The reminders of the appointments starting within the horizon are kept in a timing wheel: the horizon is refilled
+// incrementally (only the newly covered window is queried), and bookings, cancellations and reschedules update the wheel directly
+// Every sent reminder is recorded in the appointment_reminders ledger with its outbox email, in one transaction, so restarts
+// and other instances never send it twice, and a failed enqueue doesn't leave it recorded but never sent
+@Slf4j
 @Service
-@AllArgsConstructor
 public class SendAppointmentReminderService {
-    
-    private AppointmentRepository appointmentRepo;
-    private NotificationService notificationService;
-    
-    @Scheduled(cron = "0 0 * * * *")
-    public void sendAppointmentReminder(){
-
-        // Fetch the upcoming appointments (within next 2 hrs)
-        LocalDateTime currTime = LocalDateTime.now();
-        LocalDateTime after2Hrs = currTime.plusHours(2);
-
-        List<Appointment> upcomingAppointments = appointmentRepo.findByTimeSlotStartBetween(currTime, after2Hrs);
-
-        // Only send the appointment reminders to the BOOKED appointments
-        for(Appointment a: upcomingAppointments){
-            if(a.getStatus() == AppointmentStatus.BOOKED){
-                notificationService.sendReminderEmail(a);
+
+    private final AppointmentRepository appointmentRepo;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration leadTime;
+    private final Duration horizon;
+
+    private final HashedTimingWheel<Integer> wheel;
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reminder-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Appointments starting up to this time are loaded in the wheel
+    private volatile LocalDateTime loadedUntil;
+
+    public SendAppointmentReminderService(AppointmentRepository appointmentRepo, NotificationService notificationService,
+            PlatformTransactionManager transactionManager,
+            @Value("${reminder.lead-time:1h}") Duration leadTime,
+            @Value("${reminder.horizon:6h}") Duration horizon,
+            @Value("${reminder.wheel.tick:1s}") Duration tick,
+            @Value("${reminder.wheel.size:512}") int wheelSize) {
+        this.appointmentRepo = appointmentRepo;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leadTime = leadTime;
+        this.horizon = horizon;
+        this.wheel = new HashedTimingWheel<>("reminder-wheel", tick, wheelSize, id -> sender.execute(() -> sendReminder(id)));
+    }
+
+    // Load the horizon at startup (reminders missed while the application was down are sent right away)
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadHorizon() {
+        LocalDateTime now = LocalDateTime.now();
+        loadedUntil = now.plus(horizon);
+        load(now, loadedUntil);
+    }
+
+    // Extend the horizon, querying only the window which wasn't covered yet
+    @Scheduled(fixedDelayString = "${reminder.refill-interval:15m}", initialDelayString = "${reminder.refill-interval:15m}")
+    public void refillHorizon() {
+        LocalDateTime from = loadedUntil;
+        if (from == null) {
+            return;
+        }
+        // Moved before querying, so a booking committed meanwhile schedules itself rather than being missed
+        loadedUntil = LocalDateTime.now().plus(horizon);
+        load(from, loadedUntil);
+    }
+
+    // (Re)schedule the reminder of a booked or rescheduled appointment, once the transaction commits
+    public void scheduleReminder(Appointment appointment) {
+        int appointmentId = appointment.getAppointmentId();
+        LocalDateTime start = appointment.getTimeSlotStart();
+        AfterCommit.run(() -> {
+            LocalDateTime until = loadedUntil;
+            if (until != null && !start.isAfter(until)) {
+                schedule(appointmentId, start);
+            } else {
+                // Beyond the horizon, a refill picks it up (drop a reminder scheduled for its previous slot)
+                wheel.cancel(appointmentId);
             }
+        });
+    }
+
+    // Drop the reminder of a cancelled or completed appointment, once the transaction commits
+    public void cancelReminder(int appointmentId) {
+        AfterCommit.run(() -> wheel.cancel(appointmentId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+        sender.shutdownNow();
+    }
+
+    private void load(LocalDateTime from, LocalDateTime to) {
+        List<AppointmentSlot> slots = appointmentRepo.findSlotsStartingBetween(AppointmentStatus.BOOKED, from, to);
+        slots.forEach(slot -> schedule(slot.appointmentId(), slot.timeSlotStart()));
+
+        log.debug("Scheduled {} reminders for appointments starting in ({}, {}]", slots.size(), from, to);
+    }
+
+    private void schedule(int appointmentId, LocalDateTime start) {
+        Duration delay = Duration.between(LocalDateTime.now(), start.minus(leadTime));
+        wheel.schedule(appointmentId, delay);
+    }
+
+    private void sendReminder(int appointmentId) {
+        // Every replica's wheel fires the reminder: the appointment row is locked while the ledger is checked and written,
+        // so the replicas take turns and only the first one finds no reminder recorded for the start time
+        Boolean sent = transactionTemplate.execute(status -> {
+            // The wheel only holds ids, the appointment is checked again when the reminder is due
+            Appointment appointment = appointmentRepo.lockById(appointmentId).orElse(null);
+            if (appointment == null || appointment.getStatus() != AppointmentStatus.BOOKED
+                    || !appointment.getTimeSlotStart().isAfter(LocalDateTime.now())
+                    || appointment.getPatient() == null || appointment.getDoctor() == null
+                    || appointmentRepo.isReminderRecorded(appointmentId, appointment.getTimeSlotStart())) {
+                return false;
+            }
+
+            // Recorded with the enqueue, a failed enqueue leaves no ledger row behind
+            appointmentRepo.recordReminder(appointmentId, appointment.getTimeSlotStart(), LocalDateTime.now());
+            notificationService.sendReminderEmail(appointment);
+            return true;
+        });
+
+        if (Boolean.TRUE.equals(sent)) {
+            log.info("Sent the reminder of appointment with id: {}", appointmentId);
         }
     }
 }
@@ -0,0 +1,218 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.cts.healthcare_appointment_system.dto.SlotHold;
+import com.cts.healthcare_appointment_system.dto.SlotHoldDTO;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.utils.AfterCommit;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Short-lived holds on availability slots, taken by a patient while confirming a booking
+// Holds live only in memory (a lost hold just means the slot is open again), in a lock-free map updated with compare-and-set
+// Expired holds are evicted by a daemon thread waiting on a DelayQueue, and ignored by the lookups until then
+// A patient holds at most 'max-per-patient' slots at a time, and extending a hold can't keep it past 'max-lifetime' since it was taken,
+// so one patient can't lock a doctor's schedule
+@Slf4j
+@Service
+public class SlotHoldService {
+
+    private final AvailabilityRepository availabilityRepo;
+    private final UserRepository userRepo;
+    private final long ttlNanos;
+    private final int maxPerPatient;
+    private final long maxLifetimeNanos;
+
+    private final ConcurrentHashMap<Integer, Hold> holds = new ConcurrentHashMap<>();
+    // Slots held per patient, only read and updated inside compute() of the patient's entry, which serializes the patient's holds
+    private final ConcurrentHashMap<Integer, Set<Integer>> patientHolds = new ConcurrentHashMap<>();
+    private final DelayQueue<Hold> expiries = new DelayQueue<>();
+    private final Thread evictor;
+
+    public SlotHoldService(AvailabilityRepository availabilityRepo, UserRepository userRepo,
+            @Value("${availability.hold.ttl:5m}") Duration ttl,
+            @Value("${availability.hold.max-per-patient:3}") int maxPerPatient,
+            @Value("${availability.hold.max-lifetime:15m}") Duration maxLifetime) {
+        this.availabilityRepo = availabilityRepo;
+        this.userRepo = userRepo;
+        this.ttlNanos = ttl.toNanos();
+        this.maxPerPatient = maxPerPatient;
+        this.maxLifetimeNanos = maxLifetime.toNanos();
+
+        this.evictor = new Thread(this::evictExpired, "slot-hold-evictor");
+        this.evictor.setDaemon(true);
+        this.evictor.start();
+    }
+
+    // Hold a slot for the patient, holding it again extends the hold (up to the max lifetime)
+    public ResponseEntity<SlotHold> holdSlot(int availabilityId, SlotHoldDTO dto) {
+        int patientId = dto.getPatientId();
+
+        User patient = userRepo.findById(patientId).orElse(null);
+        if (patient == null || patient.getRole() != UserRole.PATIENT) {
+            throw new ApiException("Invalid patient id: " + patientId, HttpStatus.BAD_REQUEST);
+        }
+
+        Availability availability = availabilityRepo.findById(availabilityId).orElse(null);
+        if (availability == null) {
+            throw new ApiException("Invalid availability id: " + availabilityId, HttpStatus.BAD_REQUEST);
+        }
+        if (!availability.isAvailable()) {
+            throw new ApiException("Sorry, the slot is not available", HttpStatus.BAD_REQUEST);
+        }
+
+        Hold[] granted = new Hold[1];
+        patientHolds.compute(patientId, (id, held) -> {
+            Set<Integer> live = held != null ? held : new HashSet<>();
+            // Forget the holds which expired, were released or were taken over since
+            live.removeIf(heldId -> !isHeldBy(heldId, patientId));
+            if (!live.contains(availabilityId) && live.size() >= maxPerPatient) {
+                throw new ApiException("Sorry, you can hold at most " + maxPerPatient + " slots at a time", HttpStatus.BAD_REQUEST);
+            }
+            granted[0] = acquire(availabilityId, patientId);
+            live.add(availabilityId);
+            return live;
+        });
+        Hold hold = granted[0];
+        expiries.add(hold);
+
+        log.info("Slot with id: {} held by patient with id: {} until {}", availabilityId, patientId, hold.expiresAt);
+
+        return ResponseEntity.status(HttpStatus.OK).body(new SlotHold(availabilityId, patientId, hold.expiresAt));
+    }
+
+    // Fail the booking if the slot is held by another patient
+    public void checkBookable(int availabilityId, int patientId) {
+        Hold hold = holds.get(availabilityId);
+        if (hold != null && !hold.isExpired() && hold.patientId != patientId) {
+            throw new ApiException("Sorry, the slot is on hold by another patient, please try again later", HttpStatus.CONFLICT);
+        }
+    }
+
+    // Drop the hold once the booking of the slot commits
+    public void release(int availabilityId) {
+        AfterCommit.run(() -> {
+            Hold hold = holds.remove(availabilityId);
+            if (hold != null) {
+                forget(hold);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.interrupt();
+    }
+
+    private void evictExpired() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Hold expired = expiries.take();
+                // Only if it wasn't replaced (extended or taken over) meanwhile
+                holds.remove(expired.availabilityId, expired);
+                forget(expired);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    // Put a new hold of the patient on the slot, or extend the patient's current one
+    private Hold acquire(int availabilityId, int patientId) {
+        while (true) {
+            long now = System.nanoTime();
+            Hold current = holds.get(availabilityId);
+            Hold hold;
+            if (current == null || current.isExpired()) {
+                hold = new Hold(availabilityId, patientId, now, deadline(now, now));
+            } else if (current.patientId != patientId) {
+                throw new ApiException("Sorry, the slot is on hold by another patient, please try again later", HttpStatus.CONFLICT);
+            } else {
+                long deadline = deadline(current.heldSince, now);
+                if (deadline - current.deadline <= 0) {
+                    throw new ApiException("Sorry, the hold on the slot can't be extended any further", HttpStatus.BAD_REQUEST);
+                }
+                hold = new Hold(availabilityId, patientId, current.heldSince, deadline);
+            }
+            // Retry if another request swapped the hold meanwhile
+            boolean swapped = current == null
+                    ? holds.putIfAbsent(availabilityId, hold) == null
+                    : holds.replace(availabilityId, current, hold);
+            if (swapped) {
+                return hold;
+            }
+        }
+    }
+
+    // A ttl from now, but no later than the max lifetime of a hold taken at 'heldSince'
+    private long deadline(long heldSince, long now) {
+        long lifetimeEnd = heldSince + maxLifetimeNanos;
+        long deadline = now + ttlNanos;
+        return deadline - lifetimeEnd > 0 ? lifetimeEnd : deadline;
+    }
+
+    private boolean isHeldBy(int availabilityId, int patientId) {
+        Hold hold = holds.get(availabilityId);
+        return hold != null && !hold.isExpired() && hold.patientId == patientId;
+    }
+
+    // Drop the slot from the patient's holds, unless the patient holds it again
+    private void forget(Hold hold) {
+        patientHolds.computeIfPresent(hold.patientId, (id, held) -> {
+            if (!isHeldBy(hold.availabilityId, hold.patientId)) {
+                held.remove(hold.availabilityId);
+            }
+            return held.isEmpty() ? null : held;
+        });
+    }
+
+    private static class Hold implements Delayed {
+
+        private final int availabilityId;
+        private final int patientId;
+        private final long heldSince;
+        private final long deadline;
+        private final LocalDateTime expiresAt;
+
+        Hold(int availabilityId, int patientId, long heldSince, long deadline) {
+            this.availabilityId = availabilityId;
+            this.patientId = patientId;
+            this.heldSince = heldSince;
+            this.deadline = deadline;
+            this.expiresAt = LocalDateTime.now().plusNanos(deadline - System.nanoTime());
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - deadline >= 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.LocalDateTime;
+
+// Published when a booked slot becomes available again (e.g. its appointment is cancelled)
+public record SlotReleasedEvent(int doctorId, LocalDateTime timeSlotStart, LocalDateTime timeSlotEnd) {
+}
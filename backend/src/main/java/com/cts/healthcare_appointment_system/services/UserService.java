@@ -21,6 +21,9 @@ import com.cts.healthcare_appointment_system.error.ApiException;
 import com.cts.healthcare_appointment_system.models.User;
 import com.cts.healthcare_appointment_system.repositories.UserRepository;
 import com.cts.healthcare_appointment_system.security.JwtUtils;
+import com.cts.healthcare_appointment_system.security.PrincipalCache;
+import com.cts.healthcare_appointment_system.security.TokenVersionTable;
+import com.cts.healthcare_appointment_system.security.UserPrincipal;
 
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
@@ -36,6 +39,8 @@ public class UserService {
     private JwtUtils jwtUtils;
     private AuthenticationManager authManager;
     private AppointmentService appointmentService;
+    private PrincipalCache principalCache;
+    private TokenVersionTable tokenVersions;
 
     // GET methods
     // Get all users 
@@ -85,11 +90,26 @@ public class UserService {
             log.error("No user found in changeUserDetails() for userId: {}", userId);
             throw new ApiException("No user found with id: " + userId, HttpStatus.BAD_REQUEST);
         }
+        if (Boolean.TRUE.equals(dto.getEmailDigest()) && user.getRole() != UserRole.DOCTOR) {
+            throw new ApiException("Only doctors can receive a daily digest", HttpStatus.BAD_REQUEST);
+        }
+        // Only a new password revokes the issued tokens, an update of the other details keeps the caller signed in
+        boolean passwordChanged = !passwordEncoder.matches(password, user.getPassword());
         user.setName(name);
-        user.setPassword(passwordEncoder.encode(password));
+        if (passwordChanged) {
+            user.setPassword(passwordEncoder.encode(password));
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
         user.setPhone(phone);
+        if (dto.getEmailDigest() != null) {
+            user.setEmailDigest(dto.getEmailDigest());
+        }
 
         userRepo.save(user);
+        principalCache.invalidate(user.getEmail());
+        if (passwordChanged) {
+            tokenVersions.versionChanged(user.getUserId(), user.getTokenVersion());
+        }
         return ResponseEntity.status(HttpStatus.OK).body(user);
 
     }
@@ -108,7 +128,10 @@ public class UserService {
         }
 
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepo.save(user);
+        principalCache.invalidate(email);
+        tokenVersions.versionChanged(user.getUserId(), user.getTokenVersion());
 
         return ResponseEntity.status(HttpStatus.OK).body(user);
     }
@@ -159,7 +182,7 @@ public class UserService {
 
             log.debug("User with email: {} logged in", dto.getEmail());
 
-            String jwt = jwtUtils.generateJWTToken(dto.getEmail());
+            String jwt = jwtUtils.generateJWTToken(new UserPrincipal(user.getUserId(), user.getEmail(), user.getRole(), user.getTokenVersion()));
 
             jwtDto.setEmail(dto.getEmail());
             jwtDto.setUserId(user.getUserId());
@@ -200,6 +223,8 @@ public class UserService {
         user.getAvailabilities().forEach(e -> e.setDoctor(null));
 
         userRepo.delete(user);
+        principalCache.invalidate(user.getEmail());
+        tokenVersions.userDeleted(user.getUserId());
         
         return ResponseEntity.status(HttpStatus.OK).body(user);
     }
@@ -0,0 +1,69 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cts.healthcare_appointment_system.dto.WaitlistCandidate;
+import com.cts.healthcare_appointment_system.repositories.WaitlistRepository;
+import com.cts.healthcare_appointment_system.utils.AfterCommit;
+import com.cts.healthcare_appointment_system.utils.BoundedTtlCache;
+
+// In-memory priority queues of the waitlist, one per doctor and day (earliest joined first)
+// A queue is loaded with one indexed query on a cache miss, and kept in sync once the waitlist writes commit
+// Only this replica's writes are seen until the queue expires, so it's a hint: an offer claims the entry in the database
+// before booking (see WaitlistService)
+@Component
+public class WaitlistIndex {
+
+    private static final Comparator<WaitlistCandidate> PRIORITY = Comparator
+            .comparing(WaitlistCandidate::createdAt)
+            .thenComparingInt(WaitlistCandidate::waitlistId);
+
+    private final WaitlistRepository waitlistRepo;
+    private final BoundedTtlCache<DoctorDay, ConcurrentSkipListSet<WaitlistCandidate>> cache;
+
+    public WaitlistIndex(WaitlistRepository waitlistRepo,
+            @Value("${waitlist.index.max-days:10000}") int maxDays,
+            @Value("${waitlist.index.ttl:10m}") Duration ttl) {
+        this.waitlistRepo = waitlistRepo;
+        this.cache = new BoundedTtlCache<>(maxDays, ttl);
+    }
+
+    // Waiting patients of the doctor on the day, in priority order
+    public List<WaitlistCandidate> candidates(int doctorId, LocalDate date) {
+        return List.copyOf(cache.getOrLoad(new DoctorDay(doctorId, date), this::load));
+    }
+
+    public void added(int doctorId, LocalDate date, WaitlistCandidate candidate) {
+        AfterCommit.run(() -> {
+            ConcurrentSkipListSet<WaitlistCandidate> queue = cache.get(new DoctorDay(doctorId, date));
+            if (queue != null) {
+                queue.add(candidate);
+            }
+        });
+    }
+
+    public void removed(int doctorId, LocalDate date, int waitlistId) {
+        AfterCommit.run(() -> {
+            ConcurrentSkipListSet<WaitlistCandidate> queue = cache.get(new DoctorDay(doctorId, date));
+            if (queue != null) {
+                queue.removeIf(candidate -> candidate.waitlistId() == waitlistId);
+            }
+        });
+    }
+
+    private ConcurrentSkipListSet<WaitlistCandidate> load(DoctorDay key) {
+        ConcurrentSkipListSet<WaitlistCandidate> queue = new ConcurrentSkipListSet<>(PRIORITY);
+        queue.addAll(waitlistRepo.findCandidates(key.doctorId(), key.date()));
+        return queue;
+    }
+
+    private record DoctorDay(int doctorId, LocalDate date) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Offers the released slots to the waitlists on a fixed pool of 'threads' workers with a queue of 'queue-capacity' offers,
+// so a burst of cancellations can't pile up threads or memory
+// An offer rejected because both are full is dropped: the slot simply stays open for regular bookings
+@Slf4j
+@Component
+public class WaitlistOfferExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    public WaitlistOfferExecutor(MeterRegistry meterRegistry,
+            @Value("${waitlist.offer.threads:2}") int threads,
+            @Value("${waitlist.offer.queue-capacity:100}") int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "waitlist-offer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("waitlist.offer.queue.size", executor, e -> e.getQueue().size())
+                .description("Released slots waiting to be offered to a waitlist")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("waitlist.offer.rejected")
+                .description("Released slots not offered because the waitlist executor was saturated")
+                .register(meterRegistry);
+    }
+
+    // Run the offer of a released slot on a worker, never throws (it runs after the release committed)
+    public void execute(Runnable offer) {
+        try {
+            executor.execute(offer);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Waitlist offer dropped, the executor is saturated or stopped: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Pending offers are only an optimization, the slots stay open for regular bookings
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,221 @@
+package com.cts.healthcare_appointment_system.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.cts.healthcare_appointment_system.dto.AppointmentDTO;
+import com.cts.healthcare_appointment_system.dto.WaitlistCandidate;
+import com.cts.healthcare_appointment_system.dto.WaitlistDTO;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.models.WaitlistEntry;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.repositories.WaitlistRepository;
+
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+public class WaitlistService {
+
+    private final WaitlistRepository waitlistRepo;
+    private final UserRepository userRepo;
+    private final AvailabilityRepository availabilityRepo;
+    private final WaitlistIndex waitlistIndex;
+    private final BookingDispatcher bookingDispatcher;
+    private final WaitlistOfferExecutor offerExecutor;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+
+    public WaitlistService(WaitlistRepository waitlistRepo, UserRepository userRepo, AvailabilityRepository availabilityRepo,
+            WaitlistIndex waitlistIndex, BookingDispatcher bookingDispatcher, WaitlistOfferExecutor offerExecutor,
+            @Value("${waitlist.offer.max-attempts:3}") int maxAttempts,
+            @Value("${waitlist.offer.retry-delay:1s}") Duration retryDelay) {
+        this.waitlistRepo = waitlistRepo;
+        this.userRepo = userRepo;
+        this.availabilityRepo = availabilityRepo;
+        this.waitlistIndex = waitlistIndex;
+        this.bookingDispatcher = bookingDispatcher;
+        this.offerExecutor = offerExecutor;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+    }
+
+    // GET methods
+    // Get the waitlist entries of a patient
+    public ResponseEntity<List<WaitlistEntry>> getWaitlistOfPatient(int patientId) {
+        return ResponseEntity.status(HttpStatus.OK).body(waitlistRepo.findByPatientUserIdOrderByWaitDateAsc(patientId));
+    }
+
+    // POST methods
+    // Join the waitlist of a doctor for a day
+    @Transactional
+    public ResponseEntity<WaitlistEntry> joinWaitlist(WaitlistDTO dto) {
+        int patientId = dto.getPatientId();
+        int doctorId = dto.getDoctorId();
+
+        User patient = userRepo.findById(patientId).orElse(null);
+        if (patient == null || patient.getRole() != UserRole.PATIENT) {
+            throw new ApiException("Invalid patient id: " + patientId, HttpStatus.BAD_REQUEST);
+        }
+
+        User doctor = userRepo.findById(doctorId).orElse(null);
+        if (doctor == null || doctor.getRole() != UserRole.DOCTOR) {
+            throw new ApiException("Invalid doctor id: " + doctorId, HttpStatus.BAD_REQUEST);
+        }
+
+        if (waitlistRepo.existsByPatientUserIdAndDoctorUserIdAndWaitDate(patientId, doctorId, dto.getDate())) {
+            throw new ApiException("Already on the waitlist of this doctor for " + dto.getDate(), HttpStatus.BAD_REQUEST);
+        }
+
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setPatient(patient);
+        entry.setDoctor(doctor);
+        entry.setWaitDate(dto.getDate());
+        entry.setCreatedAt(LocalDateTime.now());
+        waitlistRepo.save(entry);
+
+        waitlistIndex.added(doctorId, entry.getWaitDate(), new WaitlistCandidate(entry.getWaitlistId(), patientId, entry.getCreatedAt()));
+
+        log.info("Patient with id: {} joined the waitlist of doctor with id: {} for {}", patientId, doctorId, entry.getWaitDate());
+
+        return ResponseEntity.status(HttpStatus.OK).body(entry);
+    }
+
+    // DELETE methods
+    // Leave the waitlist
+    @Transactional
+    public ResponseEntity<WaitlistEntry> leaveWaitlist(int id) {
+        WaitlistEntry entry = waitlistRepo.findById(id).orElse(null);
+        if (entry == null) {
+            throw new ApiException("Waitlist entry not found with id: " + id, HttpStatus.BAD_REQUEST);
+        }
+
+        waitlistRepo.delete(entry);
+        waitlistIndex.removed(entry.getDoctor().getUserId(), entry.getWaitDate(), id);
+
+        log.info("Deleted waitlist entry with id: {}", id);
+
+        return ResponseEntity.status(HttpStatus.OK).body(entry);
+    }
+
+    // Offer a released slot to the waitlist of the doctor for that day, booking it for the first eligible patient
+    // Runs once the release is committed, off the request thread (on the WaitlistOfferExecutor), and books through the lane of the doctor
+    @TransactionalEventListener
+    public void onSlotReleased(SlotReleasedEvent event) {
+        offerExecutor.execute(() -> offer(event));
+    }
+
+    private void offer(SlotReleasedEvent event) {
+        int doctorId = event.doctorId();
+        LocalDate date = event.timeSlotStart().toLocalDate();
+        List<WaitlistCandidate> candidates = waitlistIndex.candidates(doctorId, date);
+
+        for (WaitlistCandidate candidate : candidates) {
+            // The index is only a hint: the entry is claimed in the database first, so a patient who left the waitlist is never booked
+            if (waitlistRepo.claim(candidate.waitlistId()) == 0) {
+                waitlistIndex.removed(doctorId, date, candidate.waitlistId());
+                continue;
+            }
+
+            Offer outcome = Offer.STOPPED;
+            try {
+                outcome = offerTo(candidate, event);
+            } finally {
+                if (outcome != Offer.BOOKED) {
+                    restore(candidate, doctorId, date);
+                }
+            }
+
+            if (outcome == Offer.BOOKED) {
+                // Served, the patient is off the waitlist
+                waitlistIndex.removed(doctorId, date, candidate.waitlistId());
+                return;
+            }
+            if (outcome == Offer.STOPPED || !isStillAvailable(event)) {
+                return;
+            }
+        }
+    }
+
+    // Book the slot for a claimed candidate, retrying while the lane of the doctor is busy
+    private Offer offerTo(WaitlistCandidate candidate, SlotReleasedEvent event) {
+        int attempt = 1;
+        while (true) {
+            try {
+                Appointment appointment = bookingDispatcher.book(new AppointmentDTO(candidate.patientId(), event.doctorId(), event.timeSlotStart(), event.timeSlotEnd())).getBody();
+
+                log.info("Booked released slot for waitlisted patient with id: {}, appointment id: {}", candidate.patientId(), appointment.getAppointmentId());
+                return Offer.BOOKED;
+            } catch (ApiException e) {
+                if (!isOverloaded(e)) {
+                    // Not eligible (e.g. overlapping appointment), try the next patient while the slot is still free
+                    log.debug("Waitlisted patient with id: {} can't take the slot: {}", candidate.patientId(), e.getMessage());
+                    return Offer.NOT_ELIGIBLE;
+                }
+                // The lane of the doctor is busy or restarting, the patient is still first in line, so retry with a backoff
+                if (attempt >= maxAttempts || !sleep(retryDelay.multipliedBy(attempt))) {
+                    log.warn("Gave up offering the released slot of doctor with id: {} at {} after {} attempts, it stays open: {}",
+                            event.doctorId(), event.timeSlotStart(), attempt, e.getMessage());
+                    return Offer.STOPPED;
+                }
+                attempt++;
+            }
+            if (!isStillAvailable(event)) {
+                return Offer.STOPPED;
+            }
+        }
+    }
+
+    private void restore(WaitlistCandidate candidate, int doctorId, LocalDate date) {
+        try {
+            waitlistRepo.restore(candidate.waitlistId(), candidate.patientId(), doctorId, date, candidate.createdAt());
+        } catch (DataIntegrityViolationException e) {
+            // Joined again meanwhile (or deleted), the newer entry stands
+            waitlistIndex.removed(doctorId, date, candidate.waitlistId());
+            log.debug("Waitlist entry with id: {} wasn't restored: {}", candidate.waitlistId(), e.getMessage());
+        }
+    }
+
+    private static boolean isOverloaded(ApiException e) {
+        return e.getErrorCode() == HttpStatus.TOO_MANY_REQUESTS || e.getErrorCode() == HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    private static boolean sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private enum Offer {
+        BOOKED,
+        // The patient can't take the slot, it goes to the next one
+        NOT_ELIGIBLE,
+        // The slot is gone, or the lane of the doctor stayed busy: the offer ends
+        STOPPED
+    }
+
+    private boolean isStillAvailable(SlotReleasedEvent event) {
+        return availabilityRepo.findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(event.doctorId(), event.timeSlotStart(), event.timeSlotEnd())
+                .map(Availability::isAvailable)
+                .orElse(false);
+    }
+}
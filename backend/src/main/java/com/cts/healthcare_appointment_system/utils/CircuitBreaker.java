@@ -0,0 +1,90 @@
+package com.cts.healthcare_appointment_system.utils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Circuit breakers keyed by destination: after 'failureThreshold' consecutive failures a destination is open (calls are
+// skipped) for 'openDuration', then half-open: a single trial call is let through, its outcome closes or reopens it
+public class CircuitBreaker<K> {
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Map<K, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    // Whether a call to the destination may go ahead (true for the trial call of a half-open circuit)
+    public boolean tryAcquire(K key) {
+        Circuit circuit = circuits.get(key);
+        return circuit == null || circuit.tryAcquire(System.nanoTime());
+    }
+
+    // A healthy destination needs no state, only failing ones are tracked
+    public void recordSuccess(K key) {
+        circuits.remove(key);
+    }
+
+    public void recordFailure(K key) {
+        circuits.computeIfAbsent(key, k -> new Circuit()).recordFailure(System.nanoTime());
+    }
+
+    // A call which ended without an outcome for the destination (e.g. it never reached it): a half-open circuit lets another trial through
+    public void release(K key) {
+        Circuit circuit = circuits.get(key);
+        if (circuit != null) {
+            circuit.release();
+        }
+    }
+
+    // Time left before an open circuit lets a trial call through (zero when it isn't open)
+    public Duration remainingOpen(K key) {
+        Circuit circuit = circuits.get(key);
+        return circuit == null ? Duration.ZERO : Duration.ofNanos(circuit.remainingOpen(System.nanoTime()));
+    }
+
+    public long openCount() {
+        long now = System.nanoTime();
+        return circuits.values().stream().filter(circuit -> circuit.remainingOpen(now) > 0).count();
+    }
+
+    private class Circuit {
+
+        private int failures;
+        private boolean open;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        synchronized boolean tryAcquire(long now) {
+            if (!open) {
+                return true;
+            }
+            if (now - openedAt < openNanos || trialInFlight) {
+                return false;
+            }
+            // Half-open
+            trialInFlight = true;
+            return true;
+        }
+
+        synchronized void recordFailure(long now) {
+            failures++;
+            if (trialInFlight || failures >= failureThreshold) {
+                open = true;
+                openedAt = now;
+                trialInFlight = false;
+            }
+        }
+
+        synchronized void release() {
+            trialInFlight = false;
+        }
+
+        synchronized long remainingOpen(long now) {
+            return open ? Math.max(0, openNanos - (now - openedAt)) : 0;
+        }
+    }
+}
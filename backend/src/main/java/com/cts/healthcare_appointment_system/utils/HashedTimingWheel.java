@@ -0,0 +1,142 @@
+package com.cts.healthcare_appointment_system.utils;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Hashed timing wheel: a ring of buckets, one per tick, advanced by a single worker thread
+// Scheduling and cancelling are O(1) (a queue offer / a map removal), each tick only visits its own bucket
+// A task due after more than one revolution waits in its bucket for the remaining rounds
+// Tasks are keyed, scheduling a key again replaces its pending task
+@Slf4j
+public class HashedTimingWheel<K> {
+
+    private final long tickNanos;
+    private final Queue<Timeout<K>>[] buckets;
+    private final Map<K, Timeout<K>> pending = new ConcurrentHashMap<>();
+    private final Queue<Timeout<K>> incoming = new ConcurrentLinkedQueue<>();
+    private final Consumer<K> onExpire;
+    private final Thread worker;
+    private final long startNanos;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, Duration tickDuration, int wheelSize, Consumer<K> onExpire) {
+        this.tickNanos = tickDuration.toNanos();
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.onExpire = onExpire;
+        this.startNanos = System.nanoTime();
+
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // Fire the key after the delay (right away on the next tick when it is not positive)
+    public void schedule(K key, Duration delay) {
+        long deadline = System.nanoTime() - startNanos + Math.max(0, delay.toNanos());
+        Timeout<K> timeout = new Timeout<>(key, deadline);
+
+        Timeout<K> replaced = pending.put(key, timeout);
+        if (replaced != null) {
+            replaced.cancelled = true;
+        }
+        incoming.add(timeout);
+    }
+
+    public void cancel(K key) {
+        Timeout<K> timeout = pending.remove(key);
+        if (timeout != null) {
+            timeout.cancelled = true;
+        }
+    }
+
+    public boolean isScheduled(K key) {
+        return pending.containsKey(key);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public void stop() {
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+
+            transferIncoming();
+            expire(buckets[(int) (tick % buckets.length)]);
+            tick++;
+        }
+    }
+
+    // Place the newly scheduled timeouts in their buckets (done by the worker, so the buckets need no locking)
+    private void transferIncoming() {
+        Timeout<K> timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // Never behind the current tick, an overdue timeout fires with the current bucket
+            long dueTick = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (dueTick - tick) / buckets.length;
+            buckets[(int) (dueTick % buckets.length)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout<K>> bucket) {
+        Iterator<Timeout<K>> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout<K> timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                it.remove();
+                if (pending.remove(timeout.key, timeout)) {
+                    try {
+                        onExpire.accept(timeout.key);
+                    } catch (RuntimeException e) {
+                        log.error("Timing wheel task failed for key: {}", timeout.key, e);
+                    }
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    private static class Timeout<K> {
+
+        private final K key;
+        // Nanos since the wheel started
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        Timeout(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+}
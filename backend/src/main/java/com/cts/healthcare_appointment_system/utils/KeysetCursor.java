@@ -0,0 +1,48 @@
+package com.cts.healthcare_appointment_system.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.springframework.http.HttpStatus;
+
+import com.cts.healthcare_appointment_system.error.ApiException;
+
+// Opaque cursor for keyset (seek) pagination
+// It holds the sort key of the last row of a page (time slot start + id as the tie-breaker),
+// so the next page continues with an indexed range predicate instead of an OFFSET scan
+public record KeysetCursor(LocalDateTime timeSlotStart, int id) {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    // Response header carrying the cursor of the next page (absent on the last page)
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public String encode() {
+        String raw = timeSlotStart + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns null when no cursor is given (i.e. the first page is requested)
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, sep)), Integer.parseInt(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ApiException("Invalid cursor: " + cursor, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    public static int clampPageSize(int size) {
+        if (size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+}
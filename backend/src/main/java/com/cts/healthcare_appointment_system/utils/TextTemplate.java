@@ -0,0 +1,68 @@
+package com.cts.healthcare_appointment_system.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A text with ${name} placeholders, parsed once into segments: literals, and placeholders resolved to the index of
+// their variable, so rendering is a plain loop of appends with no parsing or lookups
+// The variables are fixed when compiling, an unknown placeholder fails right away (i.e. at startup, not when sending)
+public final class TextTemplate {
+
+    // Literal segments are strings, placeholders are the Integer index of their variable
+    private final Object[] segments;
+    private final int literalLength;
+
+    private TextTemplate(Object[] segments, int literalLength) {
+        this.segments = segments;
+        this.literalLength = literalLength;
+    }
+
+    public static TextTemplate compile(String text, List<String> variables) {
+        List<Object> segments = new ArrayList<>();
+        int literalLength = 0;
+        int from = 0;
+        while (from < text.length()) {
+            int start = text.indexOf("${", from);
+            if (start < 0) {
+                break;
+            }
+            int end = text.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at " + start + " in template: " + text);
+            }
+
+            String name = text.substring(start + 2, end);
+            int index = variables.indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown placeholder ${" + name + "}, expected one of " + variables);
+            }
+            if (start > from) {
+                segments.add(text.substring(from, start));
+                literalLength += start - from;
+            }
+            segments.add(index);
+            from = end + 1;
+        }
+        if (from < text.length()) {
+            segments.add(text.substring(from));
+            literalLength += text.length() - from;
+        }
+        return new TextTemplate(segments.toArray(), literalLength);
+    }
+
+    // Append the template to 'out', 'values' in the order of the variables given to compile()
+    public void renderTo(StringBuilder out, String[] values) {
+        for (Object segment : segments) {
+            if (segment instanceof String literal) {
+                out.append(literal);
+            } else {
+                out.append(values[(Integer) segment]);
+            }
+        }
+    }
+
+    // Length of the text without its placeholders, to size the output
+    public int literalLength() {
+        return literalLength;
+    }
+}
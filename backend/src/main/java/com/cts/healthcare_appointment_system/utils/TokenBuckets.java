@@ -0,0 +1,55 @@
+package com.cts.healthcare_appointment_system.utils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets keyed by client: a bucket holds up to 'capacity' tokens refilled at 'capacity' per 'period', each call takes one
+// A bucket is a single timestamp updated with compare-and-set (the generic cell rate algorithm): the time it is full again,
+// pushed one refill interval later per token taken; a call which would push it more than 'period' ahead finds the bucket empty
+// A full bucket is the same as a new one, so evicting the full buckets loses nothing
+public class TokenBuckets<K> {
+
+    private final long periodNanos;
+    private final long intervalNanos;
+    private final Map<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public TokenBuckets(int capacity, Duration period) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Token bucket capacity must be positive: " + capacity);
+        }
+        this.periodNanos = period.toNanos();
+        this.intervalNanos = periodNanos / capacity;
+    }
+
+    // Take a token from the key's bucket, returns zero when taken, otherwise the time until the next token
+    public Duration tryAcquire(K key) {
+        long now = System.nanoTime();
+        AtomicLong fullAt = buckets.get(key);
+        if (fullAt == null) {
+            fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            if (next - now > periodNanos) {
+                return Duration.ofNanos(next - now - periodNanos);
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    // Drop the buckets which refilled completely (a token taken from a bucket while it is dropped is forgotten, one extra call at most)
+    public void evictFull() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,8 @@
+-- The dedup key only keeps a notification from being queued twice until it's sent: it's cleared when the notification is sent
+-- (NULLs never collide in the unique constraint), so the same change can be notified again later, e.g. a reschedule back
+-- to an earlier slot
+ALTER TABLE notification_outbox MODIFY dedup_key VARCHAR(255) NULL;
+UPDATE notification_outbox SET dedup_key = NULL WHERE status = 'SENT';
+
+-- Sent notifications are purged after the retention period
+CREATE INDEX idx_notification_outbox_status_sent ON notification_outbox (status, sent_at);
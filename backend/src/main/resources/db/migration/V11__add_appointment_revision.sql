@@ -0,0 +1,4 @@
+-- Bumped whenever the slot of an appointment changes: part of the dedup key of its notifications, which stays on sent
+-- notifications until they're purged, so a retried change is notified once while a later change (e.g. a reschedule back
+-- to an earlier slot) is notified again
+ALTER TABLE appointments ADD COLUMN revision INT NOT NULL DEFAULT 0;
@@ -0,0 +1,13 @@
+CREATE TABLE waitlist_entries (
+    waitlist_id INT AUTO_INCREMENT,
+    patient_id INT NOT NULL,
+    doctor_id INT NOT NULL,
+    wait_date DATE NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    CONSTRAINT waitlist_pk PRIMARY KEY (waitlist_id),
+    CONSTRAINT waitlist_patient_fk FOREIGN KEY (patient_id) REFERENCES users (user_id) ON DELETE CASCADE,
+    CONSTRAINT waitlist_doctor_fk FOREIGN KEY (doctor_id) REFERENCES users (user_id) ON DELETE CASCADE,
+    CONSTRAINT waitlist_patient_doctor_date_uq UNIQUE (patient_id, doctor_id, wait_date)
+);
+
+CREATE INDEX idx_waitlist_doctor_date_created ON waitlist_entries (doctor_id, wait_date, created_at);
@@ -0,0 +1,11 @@
+CREATE TABLE job_watermarks (
+    job_name VARCHAR(100),
+    watermark DATETIME(6) NOT NULL,
+    CONSTRAINT job_watermark_pk PRIMARY KEY (job_name)
+);
+
+-- The sweeper starts from the beginning of the deployment day (like the previous "past slots of today" job)
+INSERT INTO job_watermarks (job_name, watermark) VALUES ('slot-sweeper', CURRENT_DATE);
+
+CREATE INDEX idx_appointments_status_end ON appointments (status, time_slot_end);
+CREATE INDEX idx_availabilities_end ON availabilities (time_slot_end);
@@ -0,0 +1,10 @@
+-- Ledger of the sent reminders, one row per appointment and start time (a rescheduled appointment gets a new reminder)
+CREATE TABLE appointment_reminders (
+    appointment_id INT,
+    reminder_start DATETIME(6),
+    sent_at DATETIME(6) NOT NULL,
+    CONSTRAINT appointment_reminder_pk PRIMARY KEY (appointment_id, reminder_start),
+    CONSTRAINT appointment_reminder_appointment_fk FOREIGN KEY (appointment_id) REFERENCES appointments (appointment_id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_appointments_status_start ON appointments (status, time_slot_start);
@@ -0,0 +1,9 @@
+-- Leases of the scheduled jobs, so only one replica runs a job (or a shard of it) at a time
+-- The fencing token grows on every acquisition, a holder whose lease expired can't commit over the new holder
+CREATE TABLE job_leases (
+    job_name VARCHAR(100),
+    owner VARCHAR(255),
+    lease_until DATETIME(6) NOT NULL,
+    fencing_token BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT job_lease_pk PRIMARY KEY (job_name)
+);
@@ -0,0 +1,24 @@
+-- Notifications written in the same transaction as the change they announce, one row per recipient
+-- A background dispatcher sends them (at least once), the dedup key keeps a notification from being queued twice
+CREATE TABLE notification_outbox (
+    notification_id BIGINT AUTO_INCREMENT,
+    type VARCHAR(30) NOT NULL,
+    appointment_id INT NOT NULL,
+    recipient_role VARCHAR(20) NOT NULL,
+    recipient_email VARCHAR(255) NOT NULL,
+    patient_name VARCHAR(255),
+    doctor_name VARCHAR(255),
+    time_slot_start DATETIME(6) NOT NULL,
+    time_slot_end DATETIME(6) NOT NULL,
+    dedup_key VARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    available_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    sent_at DATETIME(6),
+    last_error VARCHAR(1000),
+    CONSTRAINT notification_outbox_pk PRIMARY KEY (notification_id),
+    CONSTRAINT notification_outbox_dedup_uq UNIQUE (dedup_key)
+);
+
+CREATE INDEX idx_notification_outbox_status_available ON notification_outbox (status, available_at, notification_id);
@@ -0,0 +1,20 @@
+-- Doctors who opt in get one daily digest instead of an email per booking, cancellation, reschedule and reminder
+ALTER TABLE users ADD COLUMN email_digest BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- Append-only buffer of the changes of the digest doctors, drained by each digest run
+CREATE TABLE doctor_digest_events (
+    event_id BIGINT AUTO_INCREMENT,
+    doctor_id INT NOT NULL,
+    type VARCHAR(30) NOT NULL,
+    appointment_id INT NOT NULL,
+    patient_name VARCHAR(255),
+    time_slot_start DATETIME(6) NOT NULL,
+    time_slot_end DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    CONSTRAINT doctor_digest_events_pk PRIMARY KEY (event_id)
+);
+
+CREATE INDEX idx_doctor_digest_events_doctor ON doctor_digest_events (doctor_id, event_id);
+
+-- The digest text, rendered when it's queued (the other notifications only need their snapshot columns)
+ALTER TABLE notification_outbox ADD COLUMN details TEXT;
@@ -0,0 +1,2 @@
+-- Bumped whenever the credentials of a user change, so anything derived from the old ones (cached principals, tokens) can be told apart
+ALTER TABLE users ADD COLUMN token_version INT NOT NULL DEFAULT 0;
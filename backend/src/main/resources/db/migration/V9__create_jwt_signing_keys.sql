@@ -0,0 +1,11 @@
+-- JWT signing keys shared by every replica, tokens name theirs in the 'kid' header
+-- A key signs from 'activates_at' until 'retires_at', and verifies the tokens it signed until 'expires_at'
+CREATE TABLE jwt_signing_keys (
+    kid VARCHAR(64) NOT NULL,
+    secret VARCHAR(255) NOT NULL,
+    activates_at DATETIME(6) NOT NULL,
+    retires_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    CONSTRAINT jwt_signing_keys_pk PRIMARY KEY (kid)
+);
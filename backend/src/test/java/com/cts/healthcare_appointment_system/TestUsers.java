@@ -0,0 +1,27 @@
+package com.cts.healthcare_appointment_system;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+
+// Users stored for the integration tests, the database is shared by the whole test run so every email must be unique
+public final class TestUsers {
+
+    private TestUsers() {
+    }
+
+    public static User save(UserRepository userRepo, String name, String email, UserRole role) {
+        return save(userRepo, name, email, role, false);
+    }
+
+    public static User save(UserRepository userRepo, String name, String email, UserRole role, boolean emailDigest) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        user.setRole(role);
+        user.setPassword("password");
+        user.setPhone("9876543210");
+        user.setEmailDigest(emailDigest);
+        return userRepo.save(user);
+    }
+}
@@ -0,0 +1,176 @@
+package com.cts.healthcare_appointment_system.appointment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.dto.AppointmentDTO;
+import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.AppointmentService;
+import com.cts.healthcare_appointment_system.services.BookingDispatcher;
+import com.cts.healthcare_appointment_system.services.EmailService;
+
+@SpringBootTest
+public class AppointmentBookingConcurrencyTest {
+
+    private static final int PATIENTS = 200;
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private BookingDispatcher bookingDispatcher;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AvailabilityRepository availabilityRepo;
+
+    @Autowired
+    private AppointmentRepository appointmentRepo;
+
+    @BeforeEach
+    void stubEmailService() {
+        // The outbox dispatcher waits on the returned future
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void testOnlyOneConcurrentBookingWinsTheSlot() throws Exception {
+        assertOnlyOneBookingWins("race", dto -> appointmentService.saveAppointment(dto));
+    }
+
+    @Test
+    void testOnlyOneBookingThroughTheDispatcherWinsTheSlot() throws Exception {
+        assertOnlyOneBookingWins("lane", dto -> bookingDispatcher.book(dto));
+    }
+
+    private void assertOnlyOneBookingWins(String prefix, Consumer<AppointmentDTO> book) throws Exception {
+        User doctor = TestUsers.save(userRepo, "Dr. " + prefix, prefix + ".doctor@gmail.com", UserRole.DOCTOR);
+
+        LocalDateTime start = LocalDateTime.now().plusDays(2).withNano(0);
+        LocalDateTime end = start.plusHours(1);
+
+        Availability availability = new Availability();
+        availability.setDoctor(doctor);
+        availability.setTimeSlotStart(start);
+        availability.setTimeSlotEnd(end);
+        availabilityRepo.save(availability);
+
+        List<User> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            patients.add(TestUsers.save(userRepo, "Patient " + i, prefix + ".patient" + i + "@gmail.com", UserRole.PATIENT));
+        }
+
+        // Release every booking at the same moment
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (User patient : patients) {
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                try {
+                    book.accept(new AppointmentDTO(patient.getUserId(), doctor.getUserId(), start, end));
+                    winners.incrementAndGet();
+                } catch (ApiException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, winners.get());
+        assertEquals(PATIENTS - 1, rejected.get());
+
+        long booked = appointmentRepo.findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(doctor.getUserId(), start, end)
+                .stream().filter(a -> a.getStatus() == AppointmentStatus.BOOKED).count();
+        assertEquals(1, booked);
+        assertFalse(availabilityRepo.findById(availability.getAvailabilityId()).orElseThrow().isAvailable());
+    }
+
+    @Test
+    void testOnlyOneConcurrentCancelWins() throws Exception {
+        User doctor = TestUsers.save(userRepo, "Dr. Cancel", "cancel.doctor@gmail.com", UserRole.DOCTOR);
+        User patient = TestUsers.save(userRepo, "Cancel Patient", "cancel.patient@gmail.com", UserRole.PATIENT);
+
+        LocalDateTime start = LocalDateTime.now().plusDays(3).withNano(0);
+        LocalDateTime end = start.plusHours(1);
+
+        Availability availability = new Availability();
+        availability.setDoctor(doctor);
+        availability.setTimeSlotStart(start);
+        availability.setTimeSlotEnd(end);
+        availabilityRepo.save(availability);
+
+        int appointmentId = appointmentService.saveAppointment(new AppointmentDTO(patient.getUserId(), doctor.getUserId(), start, end))
+                .getBody().getAppointmentId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 16; i++) {
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                try {
+                    appointmentService.cancelAppointment(appointmentId);
+                    winners.incrementAndGet();
+                } catch (ApiException e) {
+                    // Lost the transition
+                }
+                return null;
+            }));
+        }
+
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, winners.get());
+        assertEquals(AppointmentStatus.CANCELLED, appointmentRepo.findById(appointmentId).orElseThrow().getStatus());
+        assertTrue(availabilityRepo.findById(availability.getAvailabilityId()).orElseThrow().isAvailable());
+    }
+}
@@ -0,0 +1,119 @@
+package com.cts.healthcare_appointment_system.appointment;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.AvailabilityOverlapDetector;
+import com.cts.healthcare_appointment_system.services.EmailService;
+
+@SpringBootTest
+public class AppointmentOverlapQueryTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AppointmentRepository appointmentRepo;
+
+    private User doctor;
+    private User patient;
+    private LocalDateTime base;
+
+    @BeforeEach
+    void setUp() {
+        // New users per test, the database is shared by the whole test run
+        long tag = System.nanoTime();
+        doctor = TestUsers.save(userRepo, "Dr. Query " + tag, "query.doctor" + tag + "@gmail.com", UserRole.DOCTOR);
+        patient = TestUsers.save(userRepo, "Query Patient " + tag, "query.patient" + tag + "@gmail.com", UserRole.PATIENT);
+        base = LocalDateTime.now().plusDays(10).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+        // Booked [10:00, 12:00)
+        saveAppointment(base, base.plusHours(2), AppointmentStatus.BOOKED);
+    }
+
+    @Test
+    void testAdjacentSlotsDontOverlap() {
+        assertFalse(patientOverlaps(base.minusHours(1), base));
+        assertFalse(patientOverlaps(base.plusHours(2), base.plusHours(3)));
+        assertFalse(doctorOverlaps(base.minusHours(1), base));
+        assertFalse(doctorOverlaps(base.plusHours(2), base.plusHours(3)));
+    }
+
+    @Test
+    void testContainedAndContainingSlotsOverlap() {
+        assertTrue(patientOverlaps(base.plusMinutes(30), base.plusMinutes(90)));
+        assertTrue(patientOverlaps(base.minusHours(1), base.plusHours(3)));
+        assertTrue(patientOverlaps(base, base.plusHours(2)));
+        assertTrue(doctorOverlaps(base.plusMinutes(30), base.plusMinutes(90)));
+        assertTrue(doctorOverlaps(base.minusHours(1), base.plusHours(3)));
+    }
+
+    @Test
+    void testStraddlingSlotsOverlap() {
+        assertTrue(patientOverlaps(base.minusMinutes(30), base.plusMinutes(30)));
+        assertTrue(patientOverlaps(base.plusMinutes(90), base.plusMinutes(150)));
+        assertTrue(doctorOverlaps(base.minusMinutes(30), base.plusMinutes(30)));
+        assertTrue(doctorOverlaps(base.plusMinutes(90), base.plusMinutes(150)));
+    }
+
+    @Test
+    void testLongestSlotIsFoundAtTheLowerBoundOfTheRangeScan() {
+        LocalDateTime later = base.plusDays(1);
+        // A slot of the max duration starting just after 'earliestStart' still reaches into [later, later + 1h)
+        saveAppointment(later.minus(AvailabilityOverlapDetector.MAX_SLOT_DURATION).plusMinutes(1), later.plusMinutes(1), AppointmentStatus.BOOKED);
+        assertTrue(patientOverlaps(later, later.plusHours(1)));
+        assertTrue(doctorOverlaps(later, later.plusHours(1)));
+
+        // One starting exactly at 'earliestStart' ends at 'later', touching only
+        LocalDateTime other = base.plusDays(2);
+        saveAppointment(other.minus(AvailabilityOverlapDetector.MAX_SLOT_DURATION), other, AppointmentStatus.BOOKED);
+        assertFalse(patientOverlaps(other, other.plusHours(1)));
+        assertFalse(doctorOverlaps(other, other.plusHours(1)));
+    }
+
+    @Test
+    void testOnlyAppointmentsOfTheStatusCount() {
+        LocalDateTime later = base.plusDays(3);
+        saveAppointment(later, later.plusHours(1), AppointmentStatus.CANCELLED);
+
+        assertFalse(patientOverlaps(later, later.plusHours(1)));
+        assertFalse(doctorOverlaps(later, later.plusHours(1)));
+    }
+
+    private boolean patientOverlaps(LocalDateTime start, LocalDateTime end) {
+        return appointmentRepo.existsOverlappingForPatient(patient.getUserId(), AppointmentStatus.BOOKED,
+                start.minus(AvailabilityOverlapDetector.MAX_SLOT_DURATION), start, end);
+    }
+
+    private boolean doctorOverlaps(LocalDateTime start, LocalDateTime end) {
+        return appointmentRepo.existsOverlappingForDoctor(doctor.getUserId(), AppointmentStatus.BOOKED,
+                start.minus(AvailabilityOverlapDetector.MAX_SLOT_DURATION), start, end);
+    }
+
+    private void saveAppointment(LocalDateTime start, LocalDateTime end, AppointmentStatus status) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setTimeSlotStart(start);
+        appointment.setTimeSlotEnd(end);
+        appointment.setStatus(status);
+        appointmentRepo.save(appointment);
+    }
+}
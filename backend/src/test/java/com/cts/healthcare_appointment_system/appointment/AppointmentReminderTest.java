@@ -0,0 +1,143 @@
+package com.cts.healthcare_appointment_system.appointment;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.dto.AppointmentDTO;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.AppointmentService;
+import com.cts.healthcare_appointment_system.services.EmailService;
+import com.cts.healthcare_appointment_system.services.NotificationService;
+import com.cts.healthcare_appointment_system.services.SendAppointmentReminderService;
+import com.cts.healthcare_appointment_system.utils.HashedTimingWheel;
+
+@SpringBootTest
+public class AppointmentReminderTest {
+
+    private static final String REMINDER_SUBJECT = "Reminder: Upcoming Appointment";
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @MockitoSpyBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private SendAppointmentReminderService reminderService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AvailabilityRepository availabilityRepo;
+
+    @BeforeEach
+    void stubEmailService() {
+        // The outbox dispatcher waits on the returned future
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void testReminderIsSentExactlyOnce() throws InterruptedException {
+        User doctor = TestUsers.save(userRepo, "Dr. Reminder", "reminder.doctor@gmail.com", UserRole.DOCTOR);
+        User patient = TestUsers.save(userRepo, "Reminder Patient", "reminder.patient@gmail.com", UserRole.PATIENT);
+
+        // Starts within the lead time, so the reminder is due right away
+        LocalDateTime start = LocalDateTime.now().plusMinutes(30).withNano(0);
+        Availability availability = new Availability();
+        availability.setDoctor(doctor);
+        availability.setTimeSlotStart(start);
+        availability.setTimeSlotEnd(start.plusHours(1));
+        availabilityRepo.save(availability);
+
+        Appointment appointment = appointmentService.saveAppointment(new AppointmentDTO(patient.getUserId(), doctor.getUserId(), start, start.plusHours(1))).getBody();
+        verify(emailService, timeout(5000).times(1)).sendEmail(eq(patient.getEmail()), eq(REMINDER_SUBJECT), anyString());
+
+        // Scheduling it again (e.g. another instance, or a restart) doesn't send a second reminder
+        reminderService.scheduleReminder(appointment);
+        Thread.sleep(2500);
+        verify(emailService, times(1)).sendEmail(eq(patient.getEmail()), eq(REMINDER_SUBJECT), anyString());
+        // Found in the ledger, not even offered to the outbox again
+        verify(notificationService, times(1)).sendReminderEmail(argThat(a -> a.getAppointmentId() == appointment.getAppointmentId()));
+    }
+
+    @Test
+    void testFailedEnqueueDoesNotRecordTheReminder() throws InterruptedException {
+        User doctor = TestUsers.save(userRepo, "Dr. Outbox", "reminder.outbox.doctor@gmail.com", UserRole.DOCTOR);
+        User patient = TestUsers.save(userRepo, "Outbox Patient", "reminder.outbox.patient@gmail.com", UserRole.PATIENT);
+
+        LocalDateTime start = LocalDateTime.now().plusMinutes(30).withNano(0);
+        Availability availability = new Availability();
+        availability.setDoctor(doctor);
+        availability.setTimeSlotStart(start);
+        availability.setTimeSlotEnd(start.plusHours(1));
+        availabilityRepo.save(availability);
+
+        // The first enqueue fails, its ledger row is rolled back with it
+        doThrow(new IllegalStateException("Outbox unavailable")).doCallRealMethod()
+                .when(notificationService).sendReminderEmail(any());
+        Appointment appointment = appointmentService.saveAppointment(new AppointmentDTO(patient.getUserId(), doctor.getUserId(), start, start.plusHours(1))).getBody();
+        verify(notificationService, timeout(5000).times(1)).sendReminderEmail(any());
+
+        // So the reminder is still sent when it's scheduled again
+        reminderService.scheduleReminder(appointment);
+        verify(emailService, timeout(5000).times(1)).sendEmail(eq(patient.getEmail()), eq(REMINDER_SUBJECT), anyString());
+    }
+
+    @Test
+    void testTimingWheelFiresReplacesAndCancels() throws InterruptedException {
+        Set<Integer> fired = ConcurrentHashMap.newKeySet();
+        HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>("test-wheel", Duration.ofMillis(10), 8, fired::add);
+        try {
+            // Several revolutions ahead
+            wheel.schedule(1, Duration.ofMillis(250));
+            wheel.schedule(2, Duration.ofMillis(50));
+            wheel.cancel(2);
+            wheel.schedule(3, Duration.ofSeconds(30));
+            wheel.schedule(3, Duration.ofMillis(20));
+
+            Thread.sleep(150);
+            assertEquals(Set.of(3), fired);
+            assertTrue(wheel.isScheduled(1));
+
+            Thread.sleep(250);
+            assertEquals(Set.of(1, 3), fired);
+            assertFalse(wheel.isScheduled(1));
+            assertEquals(0, wheel.size());
+        } finally {
+            wheel.stop();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.cts.healthcare_appointment_system.appointment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.AppointmentService;
+import com.cts.healthcare_appointment_system.services.EmailService;
+import com.cts.healthcare_appointment_system.utils.KeysetCursor;
+
+@SpringBootTest
+public class AppointmentSearchTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AppointmentRepository appointmentRepo;
+
+    private User doctor;
+    private User patient;
+    private LocalDateTime base;
+    // Latest first, the order of GET /appointments
+    private List<Appointment> appointments;
+
+    @BeforeEach
+    void setUp() {
+        // New users per test, the database is shared by the whole test run
+        String tag = String.valueOf(System.nanoTime());
+        doctor = TestUsers.save(userRepo, "Dr. Search " + tag, "search.doctor" + tag + "@gmail.com", UserRole.DOCTOR);
+        patient = TestUsers.save(userRepo, "Search Patient " + tag, "search.patient" + tag + "@gmail.com", UserRole.PATIENT);
+        base = LocalDateTime.now().plusDays(30).withNano(0);
+
+        appointments = new ArrayList<>();
+        for (int i = 4; i >= 0; i--) {
+            Appointment appointment = saveAppointment(doctor, patient, base.plusHours(i));
+            if (i % 2 == 1) {
+                appointment.cancel();
+                appointment = appointmentRepo.save(appointment);
+            }
+            appointments.add(appointment);
+        }
+    }
+
+    @Test
+    void testWithoutSizeOrCursorEveryAppointmentIsReturned() {
+        ResponseEntity<List<Appointment>> response = appointmentService.getAllAppointments(0, doctor.getUserId(), null, null, null, null, null, null, null);
+
+        assertEquals(ids(appointments), ids(response.getBody()));
+        assertNull(response.getHeaders().getFirst(KeysetCursor.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void testKeysetPagesFollowEachOtherWithoutGapsOrRepeats() {
+        List<Appointment> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ResponseEntity<List<Appointment>> page = appointmentService.getAllAppointments(patient.getUserId(), 0, null, null, null, null, null, cursor, 2);
+            seen.addAll(page.getBody());
+            cursor = page.getHeaders().getFirst(KeysetCursor.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(ids(appointments), ids(seen));
+    }
+
+    @Test
+    void testFiltersRunTogether() {
+        // Booked appointments of the patient (found by name prefix) within the first three hours
+        ResponseEntity<List<Appointment>> response = appointmentService.getAllAppointments(0, doctor.getUserId(),
+                patient.getName().substring(0, 20).toLowerCase(), null, base, base.plusHours(3), "booked", null, null);
+
+        // Hours 2 and 0, latest first
+        assertEquals(List.of(appointments.get(2).getAppointmentId(), appointments.get(4).getAppointmentId()), ids(response.getBody()));
+    }
+
+    private List<Integer> ids(List<Appointment> appointments) {
+        return appointments.stream().map(Appointment::getAppointmentId).toList();
+    }
+
+    private Appointment saveAppointment(User doctor, User patient, LocalDateTime start) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setTimeSlotStart(start);
+        appointment.setTimeSlotEnd(start.plusHours(1));
+        appointment.book();
+        return appointmentRepo.save(appointment);
+    }
+}
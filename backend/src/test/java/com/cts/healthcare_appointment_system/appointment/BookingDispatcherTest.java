@@ -0,0 +1,176 @@
+package com.cts.healthcare_appointment_system.appointment;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.cts.healthcare_appointment_system.dto.AppointmentDTO;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.services.AppointmentService;
+import com.cts.healthcare_appointment_system.services.BookingDispatcher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingDispatcherTest {
+
+    @Mock
+    private AppointmentService appointmentService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BookingDispatcher dispatcher;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        // One lane, two queued bookings at most
+        dispatcher = new BookingDispatcher(appointmentService, transactionManager, meterRegistry, 1, 2, 32, Duration.ofSeconds(10));
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testSaturatedLaneRejectsWithTooManyRequests() throws Exception {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(appointmentService.bookAppointment(any())).thenAnswer(invocation -> {
+            applying.countDown();
+            release.await();
+            return new Appointment();
+        });
+
+        // The first booking occupies the lane, the next two fill its queue
+        List<Future<?>> accepted = new ArrayList<>();
+        accepted.add(executor.submit(() -> dispatcher.book(dto(1))));
+        assertTrue(applying.await(5, TimeUnit.SECONDS));
+        accepted.add(executor.submit(() -> dispatcher.book(dto(2))));
+        accepted.add(executor.submit(() -> dispatcher.book(dto(3))));
+        waitForQueueDepth(2);
+
+        ApiException ex = assertThrows(ApiException.class, () -> dispatcher.book(dto(4)));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getErrorCode());
+        assertEquals(1.0, meterRegistry.get("booking.dispatcher.rejected").counter().count());
+
+        release.countDown();
+        for (Future<?> future : accepted) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        verify(appointmentService, times(3)).bookAppointment(any());
+    }
+
+    @Test
+    void testRejectedBookingDoesNotFailTheRestOfTheBatch() throws Exception {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(appointmentService.bookAppointment(any())).thenAnswer(invocation -> {
+            AppointmentDTO dto = invocation.getArgument(0);
+            if (dto.getPatientId() == 1) {
+                applying.countDown();
+                release.await();
+            }
+            if (dto.getPatientId() == 2) {
+                throw new ApiException("Sorry, the slot is not available", HttpStatus.BAD_REQUEST);
+            }
+            return new Appointment();
+        });
+
+        Future<?> first = executor.submit(() -> dispatcher.book(dto(1)));
+        assertTrue(applying.await(5, TimeUnit.SECONDS));
+        Future<?> rejected = executor.submit(() -> dispatcher.book(dto(2)));
+        Future<?> accepted = executor.submit(() -> dispatcher.book(dto(3)));
+        waitForQueueDepth(2);
+        release.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        accepted.get(5, TimeUnit.SECONDS);
+        Exception ex = assertThrows(Exception.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof ApiException);
+
+        // The queued bookings were applied together, in a second transaction
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(2, meterRegistry.get("booking.dispatcher.batch.size").summary().count());
+    }
+
+    @Test
+    void testShutdownFailsQueuedBookingsRightAway() throws Exception {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(appointmentService.bookAppointment(any())).thenAnswer(invocation -> {
+            applying.countDown();
+            release.await();
+            return new Appointment();
+        });
+
+        Future<?> applied = executor.submit(() -> dispatcher.book(dto(1)));
+        assertTrue(applying.await(5, TimeUnit.SECONDS));
+        Future<?> queued = executor.submit(() -> dispatcher.book(dto(2)));
+        waitForQueueDepth(1);
+
+        long start = System.nanoTime();
+        dispatcher.shutdown();
+
+        // Well before the 10s booking timeout
+        Exception ex = assertThrows(Exception.class, () -> queued.get(2, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof ApiException cause && cause.getErrorCode() == HttpStatus.SERVICE_UNAVAILABLE);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+        // New bookings are refused once stopped
+        ApiException refused = assertThrows(ApiException.class, () -> dispatcher.book(dto(3)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, refused.getErrorCode());
+
+        // The booking being applied is interrupted and rolled back, it gets the same 503
+        Exception interrupted = assertThrows(Exception.class, () -> applied.get(2, TimeUnit.SECONDS));
+        assertTrue(interrupted.getCause() instanceof ApiException cause && cause.getErrorCode() == HttpStatus.SERVICE_UNAVAILABLE);
+        verify(appointmentService, times(1)).bookAppointment(any());
+
+        release.countDown();
+    }
+
+    private void waitForQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("booking.dispatcher.queue.depth").gauge().value() < depth && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(depth, meterRegistry.get("booking.dispatcher.queue.depth").gauge().value());
+    }
+
+    private AppointmentDTO dto(int patientId) {
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        return new AppointmentDTO(patientId, 7, start, start.plusHours(1));
+    }
+}
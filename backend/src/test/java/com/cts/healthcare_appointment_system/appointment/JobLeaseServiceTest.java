@@ -0,0 +1,75 @@
+package com.cts.healthcare_appointment_system.appointment;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.healthcare_appointment_system.models.JobLease;
+import com.cts.healthcare_appointment_system.repositories.JobLeaseRepository;
+import com.cts.healthcare_appointment_system.services.EmailService;
+import com.cts.healthcare_appointment_system.services.JobLeaseService;
+
+@SpringBootTest
+public class JobLeaseServiceTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private JobLeaseRepository leaseRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void stubEmailService() {
+        // The outbox dispatcher waits on the returned future
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void testOnlyOneReplicaHoldsTheLease() {
+        JobLeaseService first = new JobLeaseService(leaseRepo, Duration.ofMinutes(5), "replica-1");
+        JobLeaseService second = new JobLeaseService(leaseRepo, Duration.ofMinutes(5), "replica-2");
+
+        JobLease lease = first.tryAcquire("lease-test").orElseThrow();
+        assertTrue(second.tryAcquire("lease-test").isEmpty());
+        // The holder counts its time left on its own clock, within the lease
+        assertTrue(lease.remaining().compareTo(Duration.ZERO) > 0 && lease.remaining().compareTo(Duration.ofMinutes(5)) <= 0);
+
+        // Released early, the other replica takes it with a newer fencing token
+        first.release(lease);
+        JobLease taken = second.tryAcquire("lease-test").orElseThrow();
+        assertTrue(taken.getFencingToken() > lease.getFencingToken());
+    }
+
+    @Test
+    void testExpiredLeaseIsTakenOverAndFencesTheStaleHolder() throws InterruptedException {
+        JobLeaseService stalled = new JobLeaseService(leaseRepo, Duration.ofMillis(200), "replica-1");
+        JobLeaseService other = new JobLeaseService(leaseRepo, Duration.ofMillis(200), "replica-2");
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        JobLease staleLease = stalled.tryAcquire("fence-test").orElseThrow();
+        assertDoesNotThrow(() -> tx.executeWithoutResult(status -> stalled.checkFence(staleLease)));
+
+        // The holder stalls past its lease
+        Thread.sleep(300);
+        JobLease newLease = other.tryAcquire("fence-test").orElseThrow();
+
+        // The stalled holder can't commit anymore, the new holder can
+        assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status -> stalled.checkFence(staleLease)));
+        assertDoesNotThrow(() -> tx.executeWithoutResult(status -> other.checkFence(newLease)));
+    }
+}
@@ -0,0 +1,141 @@
+package com.cts.healthcare_appointment_system.appointment;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.JobWatermark;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.JobWatermarkRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.CronJobsService;
+import com.cts.healthcare_appointment_system.services.EmailService;
+import com.cts.healthcare_appointment_system.services.JobLeaseService;
+import com.cts.healthcare_appointment_system.services.NotificationService;
+
+@SpringBootTest
+public class SlotSweeperTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private CronJobsService cronJobsService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AvailabilityRepository availabilityRepo;
+
+    @Autowired
+    private AppointmentRepository appointmentRepo;
+
+    @Autowired
+    private JobWatermarkRepository watermarkRepo;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private JobLeaseService leaseService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void stubEmailService() {
+        // The outbox dispatcher waits on the returned future
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void testSweepCatchesUpEndedSlotsSinceTheWatermark() {
+        User doctor = TestUsers.save(userRepo, "Dr. Sweep", "sweep.doctor@gmail.com", UserRole.DOCTOR);
+        User patient = TestUsers.save(userRepo, "Sweep Patient", "sweep.patient@gmail.com", UserRole.PATIENT);
+
+        // As if the application was down for a day: a slot spanning the previous midnight ended since the watermark
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        watermarkRepo.save(new JobWatermark(CronJobsService.SLOT_SWEEPER, now.minusDays(2)));
+
+        Availability free = saveSlot(doctor, now.minusDays(1).minusHours(1), now.minusDays(1).plusHours(1), true);
+        Availability booked = saveSlot(doctor, now.minusHours(3), now.minusHours(2), false);
+        Availability upcoming = saveSlot(doctor, now.plusHours(1), now.plusHours(2), true);
+        Appointment appointment = saveAppointment(doctor, patient, booked);
+
+        cronJobsService.markPastAvailabilitiesUnavailable();
+
+        assertFalse(availabilityRepo.findById(free.getAvailabilityId()).orElseThrow().isAvailable());
+        assertTrue(availabilityRepo.findById(upcoming.getAvailabilityId()).orElseThrow().isAvailable());
+        assertEquals(AppointmentStatus.COMPLETED, appointmentRepo.findById(appointment.getAppointmentId()).orElseThrow().getStatus());
+        verify(emailService, timeout(5000).times(1)).sendEmail(eq(patient.getEmail()), eq("Appointment Completed"), anyString());
+
+        // The watermark moved, the next run doesn't sweep the same window again
+        assertFalse(watermarkRepo.findById(CronJobsService.SLOT_SWEEPER).orElseThrow().getWatermark().isBefore(now));
+        cronJobsService.markPastAvailabilitiesUnavailable();
+        verify(emailService, after(500).times(1)).sendEmail(eq(patient.getEmail()), eq("Appointment Completed"), anyString());
+    }
+
+    @Test
+    void testShardedSweepCoversEveryDoctor() {
+        User evenDoctor = TestUsers.save(userRepo, "Dr. Even", "shard.doctor1@gmail.com", UserRole.DOCTOR);
+        User oddDoctor = TestUsers.save(userRepo, "Dr. Odd", "shard.doctor2@gmail.com", UserRole.DOCTOR);
+        User patient = TestUsers.save(userRepo, "Shard Patient", "shard.patient@gmail.com", UserRole.PATIENT);
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Appointment first = saveAppointment(evenDoctor, patient, saveSlot(evenDoctor, now.minusHours(3), now.minusHours(2), false));
+        Appointment second = saveAppointment(oddDoctor, patient, saveSlot(oddDoctor, now.minusHours(5), now.minusHours(4), false));
+
+        // Each shard starts from the unsharded watermark
+        watermarkRepo.save(new JobWatermark(CronJobsService.SLOT_SWEEPER, now.minusDays(1)));
+        CronJobsService sharded = new CronJobsService(availabilityRepo, appointmentRepo, watermarkRepo, notificationService, leaseService, transactionManager, 2);
+        sharded.markPastAvailabilitiesUnavailable();
+
+        assertEquals(AppointmentStatus.COMPLETED, appointmentRepo.findById(first.getAppointmentId()).orElseThrow().getStatus());
+        assertEquals(AppointmentStatus.COMPLETED, appointmentRepo.findById(second.getAppointmentId()).orElseThrow().getStatus());
+        assertTrue(watermarkRepo.findById(CronJobsService.SLOT_SWEEPER + "-0-of-2").isPresent());
+        assertTrue(watermarkRepo.findById(CronJobsService.SLOT_SWEEPER + "-1-of-2").isPresent());
+    }
+
+    private Availability saveSlot(User doctor, LocalDateTime start, LocalDateTime end, boolean available) {
+        Availability availability = new Availability();
+        availability.setDoctor(doctor);
+        availability.setTimeSlotStart(start);
+        availability.setTimeSlotEnd(end);
+        availability.setAvailable(available);
+        return availabilityRepo.save(availability);
+    }
+
+    private Appointment saveAppointment(User doctor, User patient, Availability slot) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setTimeSlotStart(slot.getTimeSlotStart());
+        appointment.setTimeSlotEnd(slot.getTimeSlotEnd());
+        appointment.book();
+        return appointmentRepo.save(appointment);
+    }
+}
@@ -0,0 +1,137 @@
+package com.cts.healthcare_appointment_system.availability;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.dto.AvailabilityDTO;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.AvailabilityOverlapDetector;
+import com.cts.healthcare_appointment_system.services.AvailabilityService;
+import com.cts.healthcare_appointment_system.services.EmailService;
+
+@SpringBootTest
+public class AvailabilityOverlapTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private AvailabilityOverlapDetector detector;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AvailabilityRepository availabilityRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User doctor;
+    private LocalDateTime base;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        // A new doctor per test, the database is shared by the whole test run
+        long tag = System.nanoTime();
+        doctor = TestUsers.save(userRepo, "Dr. Overlap " + tag, "overlap.doctor" + tag + "@gmail.com", UserRole.DOCTOR);
+        base = LocalDateTime.now().plusDays(7).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testOverlapsAreCheckedAgainstTheDatabase() {
+        Availability first = save(base, base.plusHours(1));
+        save(base.plusHours(2), base.plusHours(4));
+
+        // Touching slots don't overlap (slots are [start, end))
+        assertFalse(detector.overlaps(doctor.getUserId(), base.plusHours(1), base.plusHours(2), 0));
+        assertTrue(detector.overlaps(doctor.getUserId(), base.plusMinutes(30), base.plusMinutes(90), 0));
+        assertTrue(detector.overlaps(doctor.getUserId(), base.plusHours(1), base.plusHours(5), 0));
+        assertTrue(detector.overlaps(doctor.getUserId(), base.plusHours(3), base.plusHours(4), 0));
+        // The slot being edited is ignored
+        assertFalse(detector.overlaps(doctor.getUserId(), base, base.plusHours(1), first.getAvailabilityId()));
+
+        ApiException ex = assertThrows(ApiException.class, () -> availabilityService.saveAvailability(
+                new AvailabilityDTO(doctor.getUserId(), base.plusMinutes(30), base.plusMinutes(90))));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getErrorCode());
+    }
+
+    @Test
+    void testSlotChangesOfADoctorAreSerialized() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Another request holds the doctor's lock while it inserts a slot
+        Future<?> other = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            userRepo.lockById(doctor.getUserId());
+            locked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Availability slot = new Availability();
+            slot.setDoctor(doctor);
+            slot.setTimeSlotStart(base);
+            slot.setTimeSlotEnd(base.plusHours(1));
+            slot.setAvailable(true);
+            availabilityRepo.save(slot);
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        // The overlapping create waits for the lock (the other slot is only inserted after a while), then sees the committed slot
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.start();
+        ApiException ex = assertThrows(ApiException.class, () -> availabilityService.saveAvailability(
+                new AvailabilityDTO(doctor.getUserId(), base.plusMinutes(30), base.plusMinutes(90))));
+        other.get(5, TimeUnit.SECONDS);
+
+        assertEquals("Availability slot overlaps", ex.getMessage());
+    }
+
+    private Availability save(LocalDateTime start, LocalDateTime end) {
+        return availabilityService.saveAvailability(new AvailabilityDTO(doctor.getUserId(), start, end)).getBody();
+    }
+}
@@ -0,0 +1,120 @@
+package com.cts.healthcare_appointment_system.availability;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.AvailabilityService;
+import com.cts.healthcare_appointment_system.services.EmailService;
+import com.cts.healthcare_appointment_system.utils.KeysetCursor;
+
+@SpringBootTest
+public class AvailabilitySearchTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AvailabilityRepository availabilityRepo;
+
+    private User doctor;
+    private LocalDateTime base;
+    private List<Availability> slots;
+
+    @BeforeEach
+    void setUp() {
+        // A new doctor per test, the database is shared by the whole test run
+        doctor = saveDoctor("Dr. Search " + System.nanoTime());
+        base = LocalDateTime.now().plusDays(30).withNano(0);
+        slots = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            slots.add(saveSlot(doctor, base.plusHours(i), base.plusHours(i + 1), i % 2 == 0));
+        }
+    }
+
+    @Test
+    void testWithoutSizeOrCursorEverySlotIsReturned() {
+        ResponseEntity<List<Availability>> response = availabilityService.getAllAvailabilities(doctor.getUserId(), null, null, null, null, null, null);
+
+        assertEquals(ids(slots), ids(response.getBody()));
+        assertNull(response.getHeaders().getFirst(KeysetCursor.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void testKeysetPagesFollowEachOtherWithoutGapsOrRepeats() {
+        List<Availability> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ResponseEntity<List<Availability>> page = availabilityService.getAllAvailabilities(doctor.getUserId(), null, null, null, null, cursor, 2);
+            seen.addAll(page.getBody());
+            cursor = page.getHeaders().getFirst(KeysetCursor.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(ids(slots), ids(seen));
+    }
+
+    @Test
+    void testFiltersRunTogether() {
+        // Free slots starting from the second hour and ending by the end of the fourth one
+        ResponseEntity<List<Availability>> response = availabilityService.getAllAvailabilities(doctor.getUserId(), null,
+                base.plusHours(1), base.plusHours(4), "true", null, null);
+
+        assertEquals(List.of(slots.get(2).getAvailabilityId()), ids(response.getBody()));
+    }
+
+    @Test
+    void testNamePrefixMatchesLikeWildcardsLiterally() {
+        String tag = "Zq" + System.nanoTime();
+        User underscore = saveDoctor(tag + "_Escape");
+        User letter = saveDoctor(tag + "xEscape");
+        Availability literal = saveSlot(underscore, base, base.plusHours(1), true);
+        saveSlot(letter, base, base.plusHours(1), true);
+
+        ResponseEntity<List<Availability>> response = availabilityService.getAllAvailabilities(0, tag.toLowerCase() + "_", null, null, null, null, null);
+
+        assertEquals(List.of(literal.getAvailabilityId()), ids(response.getBody()));
+        assertNotNull(response.getBody().get(0).getDoctor());
+    }
+
+    private List<Integer> ids(List<Availability> availabilities) {
+        return availabilities.stream().map(Availability::getAvailabilityId).toList();
+    }
+
+    private Availability saveSlot(User doctor, LocalDateTime start, LocalDateTime end, boolean available) {
+        Availability availability = new Availability();
+        availability.setDoctor(doctor);
+        availability.setTimeSlotStart(start);
+        availability.setTimeSlotEnd(end);
+        availability.setAvailable(available);
+        return availabilityRepo.save(availability);
+    }
+
+    private User saveDoctor(String name) {
+        return TestUsers.save(userRepo, name, name.replaceAll("[^A-Za-z0-9]", "").toLowerCase() + "@gmail.com", UserRole.DOCTOR);
+    }
+}
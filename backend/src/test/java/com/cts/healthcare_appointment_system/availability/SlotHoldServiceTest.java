@@ -0,0 +1,124 @@
+package com.cts.healthcare_appointment_system.availability;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyInt;
+import org.mockito.Mock;
+import static org.mockito.Mockito.lenient;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import com.cts.healthcare_appointment_system.dto.SlotHold;
+import com.cts.healthcare_appointment_system.dto.SlotHoldDTO;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.SlotHoldService;
+
+@ExtendWith(MockitoExtension.class)
+public class SlotHoldServiceTest {
+
+    @Mock
+    private AvailabilityRepository availabilityRepo;
+
+    @Mock
+    private UserRepository userRepo;
+
+    private SlotHoldService holdService;
+
+    @BeforeEach
+    void setUp() {
+        User patient = new User();
+        patient.setRole(UserRole.PATIENT);
+        lenient().when(userRepo.findById(anyInt())).thenReturn(Optional.of(patient));
+        lenient().when(availabilityRepo.findById(anyInt())).thenReturn(Optional.of(new Availability()));
+
+        holdService = new SlotHoldService(availabilityRepo, userRepo, Duration.ofMillis(200), 2, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        holdService.shutdown();
+    }
+
+    @Test
+    void testOnlyTheHolderCanBook() {
+        holdService.holdSlot(1, new SlotHoldDTO(10));
+
+        assertDoesNotThrow(() -> holdService.checkBookable(1, 10));
+        ApiException ex = assertThrows(ApiException.class, () -> holdService.checkBookable(1, 11));
+        assertEquals(HttpStatus.CONFLICT, ex.getErrorCode());
+
+        // Another patient can't take the hold over, the holder can extend it
+        assertThrows(ApiException.class, () -> holdService.holdSlot(1, new SlotHoldDTO(11)));
+        SlotHold extended = holdService.holdSlot(1, new SlotHoldDTO(10)).getBody();
+        assertEquals(10, extended.patientId());
+
+        // Other slots are unaffected
+        assertDoesNotThrow(() -> holdService.checkBookable(2, 11));
+    }
+
+    @Test
+    void testExpiredHoldFreesTheSlot() throws InterruptedException {
+        holdService.holdSlot(1, new SlotHoldDTO(10));
+        Thread.sleep(300);
+
+        assertDoesNotThrow(() -> holdService.checkBookable(1, 11));
+        assertEquals(11, holdService.holdSlot(1, new SlotHoldDTO(11)).getBody().patientId());
+    }
+
+    @Test
+    void testReleasedHoldFreesTheSlot() {
+        holdService.holdSlot(1, new SlotHoldDTO(10));
+        holdService.release(1);
+
+        assertDoesNotThrow(() -> holdService.checkBookable(1, 11));
+        assertTrue(holdService.holdSlot(1, new SlotHoldDTO(11)).getStatusCode().is2xxSuccessful());
+    }
+
+    @Test
+    void testHoldsPerPatientAreCapped() {
+        holdService.holdSlot(1, new SlotHoldDTO(10));
+        holdService.holdSlot(2, new SlotHoldDTO(10));
+
+        ApiException ex = assertThrows(ApiException.class, () -> holdService.holdSlot(3, new SlotHoldDTO(10)));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getErrorCode());
+        // Extending a held slot doesn't count, and other patients have their own cap
+        assertDoesNotThrow(() -> holdService.holdSlot(2, new SlotHoldDTO(10)));
+        assertDoesNotThrow(() -> holdService.holdSlot(3, new SlotHoldDTO(11)));
+
+        holdService.release(1);
+        assertDoesNotThrow(() -> holdService.holdSlot(4, new SlotHoldDTO(10)));
+    }
+
+    @Test
+    void testExtensionsAreCappedByTheMaxLifetime() throws InterruptedException {
+        holdService.shutdown();
+        holdService = new SlotHoldService(availabilityRepo, userRepo, Duration.ofMillis(400), 2, Duration.ofMillis(600));
+
+        SlotHold first = holdService.holdSlot(1, new SlotHoldDTO(10)).getBody();
+        Thread.sleep(300);
+
+        // Extended only up to 600ms after the hold was taken, and no further
+        SlotHold extended = holdService.holdSlot(1, new SlotHoldDTO(10)).getBody();
+        assertTrue(extended.expiresAt().isBefore(first.expiresAt().plus(Duration.ofMillis(250))));
+        ApiException ex = assertThrows(ApiException.class, () -> holdService.holdSlot(1, new SlotHoldDTO(10)));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getErrorCode());
+        assertThrows(ApiException.class, () -> holdService.checkBookable(1, 11));
+
+        Thread.sleep(400);
+        assertEquals(11, holdService.holdSlot(1, new SlotHoldDTO(11)).getBody().patientId());
+    }
+}
@@ -0,0 +1,77 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.cts.healthcare_appointment_system.utils.CircuitBreaker;
+
+public class CircuitBreakerTest {
+
+    @Test
+    void testOpensAfterConsecutiveFailuresOfOneDestination() {
+        CircuitBreaker<String> breaker = new CircuitBreaker<>(3, Duration.ofMinutes(1));
+
+        breaker.recordFailure("down.example");
+        breaker.recordFailure("down.example");
+        assertTrue(breaker.tryAcquire("down.example"));
+        breaker.recordFailure("down.example");
+
+        assertFalse(breaker.tryAcquire("down.example"));
+        assertTrue(breaker.remainingOpen("down.example").compareTo(Duration.ofSeconds(50)) > 0);
+        assertEquals(1, breaker.openCount());
+        // Other destinations are unaffected
+        assertTrue(breaker.tryAcquire("up.example"));
+    }
+
+    @Test
+    void testSuccessResetsTheFailureCount() {
+        CircuitBreaker<String> breaker = new CircuitBreaker<>(2, Duration.ofMinutes(1));
+
+        breaker.recordFailure("flaky.example");
+        breaker.recordSuccess("flaky.example");
+        breaker.recordFailure("flaky.example");
+
+        assertTrue(breaker.tryAcquire("flaky.example"));
+        assertEquals(0, breaker.openCount());
+    }
+
+    @Test
+    void testHalfOpenLetsOneTrialThrough() throws InterruptedException {
+        CircuitBreaker<String> breaker = new CircuitBreaker<>(1, Duration.ofMillis(50));
+
+        breaker.recordFailure("down.example");
+        assertFalse(breaker.tryAcquire("down.example"));
+        Thread.sleep(100);
+
+        // A single trial, a failed trial reopens the circuit right away
+        assertTrue(breaker.tryAcquire("down.example"));
+        assertFalse(breaker.tryAcquire("down.example"));
+        breaker.recordFailure("down.example");
+        assertFalse(breaker.tryAcquire("down.example"));
+        Thread.sleep(100);
+
+        // A successful trial closes it
+        assertTrue(breaker.tryAcquire("down.example"));
+        breaker.recordSuccess("down.example");
+        assertTrue(breaker.tryAcquire("down.example"));
+        assertTrue(breaker.tryAcquire("down.example"));
+    }
+
+    @Test
+    void testReleasedTrialLetsAnotherOneThrough() throws InterruptedException {
+        CircuitBreaker<String> breaker = new CircuitBreaker<>(1, Duration.ofMillis(50));
+
+        breaker.recordFailure("down.example");
+        Thread.sleep(100);
+
+        // The trial never reached the destination, the circuit stays half-open
+        assertTrue(breaker.tryAcquire("down.example"));
+        breaker.release("down.example");
+        assertTrue(breaker.tryAcquire("down.example"));
+        assertFalse(breaker.tryAcquire("down.example"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.security.UserPrincipal;
+import com.cts.healthcare_appointment_system.services.EmailService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "notifications.dead-letters.operators=Ops@gmail.com")
+public class DeadLetterAccessTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testOnlyOperatorsManageDeadLetters() throws Exception {
+        mockMvc.perform(get("/notifications/dead-letters").with(as(1, "ops@gmail.com", UserRole.PATIENT)))
+                .andExpect(status().isOk());
+
+        // Any other doctor or patient is denied
+        mockMvc.perform(get("/notifications/dead-letters").with(as(2, "doctor@gmail.com", UserRole.DOCTOR)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/notifications/dead-letters/replay").with(as(2, "doctor@gmail.com", UserRole.DOCTOR)))
+                .andExpect(status().isForbidden());
+    }
+
+    private static RequestPostProcessor as(int userId, String email, UserRole role) {
+        UserPrincipal principal = new UserPrincipal(userId, email, role, 0);
+        return authentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
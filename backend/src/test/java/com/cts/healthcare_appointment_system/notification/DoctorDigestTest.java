@@ -0,0 +1,152 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.dto.AppointmentDTO;
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.DigestEvent;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.DigestEventRepository;
+import com.cts.healthcare_appointment_system.repositories.JobWatermarkRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.services.AppointmentService;
+import com.cts.healthcare_appointment_system.services.DoctorDigestService;
+import com.cts.healthcare_appointment_system.services.EmailService;
+
+@SpringBootTest
+public class DoctorDigestTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorDigestService digestService;
+
+    @Autowired
+    private DigestEventRepository digestEventRepo;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AvailabilityRepository availabilityRepo;
+
+    @Autowired
+    private JobWatermarkRepository watermarkRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void stubEmailService() {
+        // The outbox dispatcher waits on the returned future
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        // Every test runs the digests of tomorrow
+        watermarkRepo.deleteById(DoctorDigestService.DOCTOR_DIGEST);
+    }
+
+    @Test
+    void testDigestDoctorGetsOneSummaryWhilePatientsGetEmailsRightAway() {
+        User doctor = TestUsers.save(userRepo, "Dr. Digest", "digest.doctor@gmail.com", UserRole.DOCTOR, true);
+        User patient = TestUsers.save(userRepo, "Digest Patient", "digest.patient@gmail.com", UserRole.PATIENT, false);
+
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        LocalDateTime start = tomorrow.atTime(10, 0);
+        Availability availability = new Availability();
+        availability.setDoctor(doctor);
+        availability.setTimeSlotStart(start);
+        availability.setTimeSlotEnd(start.plusHours(1));
+        availabilityRepo.save(availability);
+
+        appointmentService.saveAppointment(new AppointmentDTO(patient.getUserId(), doctor.getUserId(), start, start.plusHours(1)));
+
+        // The patient is mailed, the doctor's booking waits in the buffer
+        verify(emailService, timeout(5000)).sendEmail(eq(patient.getEmail()), eq("Appointment Booked"), anyString());
+        verify(emailService, after(500).never()).sendEmail(eq(doctor.getEmail()), anyString(), anyString());
+        assertTrue(digestEventRepo.findAll().stream().anyMatch(e -> e.getDoctorId() == doctor.getUserId()));
+
+        digestService.sendDigests();
+
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(emailService, timeout(5000)).sendEmail(eq(doctor.getEmail()), eq("Your Schedule for " + tomorrow), body.capture());
+        assertTrue(body.getValue().contains("10:00 AM to 11:00 AM: Digest Patient"));
+        assertTrue(body.getValue().contains("Booked: Digest Patient on " + tomorrow + " 10:00 AM"));
+        assertTrue(digestEventRepo.findAll().stream().noneMatch(e -> e.getDoctorId() == doctor.getUserId()));
+    }
+
+    @Test
+    void testEventCommittedDuringTheRunIsKeptForTheNextDigest() throws Exception {
+        User doctor = TestUsers.save(userRepo, "Dr. Late", "digest.late.doctor@gmail.com", UserRole.DOCTOR, true);
+
+        // Appended first (lower id), by a transaction which only commits once the digests are queued
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch digested = new CountDownLatch(1);
+        CompletableFuture<Long> late = CompletableFuture.supplyAsync(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            DigestEvent event = digestEventRepo.save(event(doctor, "Late Patient"));
+            appended.countDown();
+            try {
+                digested.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return event.getEventId();
+        }));
+        appended.await(10, TimeUnit.SECONDS);
+        DigestEvent early = digestEventRepo.save(event(doctor, "Early Patient"));
+
+        digestService.sendDigests();
+        digested.countDown();
+        long lateId = late.get(10, TimeUnit.SECONDS);
+
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(emailService, timeout(5000)).sendEmail(eq(doctor.getEmail()), anyString(), body.capture());
+        assertTrue(body.getValue().contains("Early Patient"));
+        assertFalse(body.getValue().contains("Late Patient"));
+        assertTrue(lateId < early.getEventId());
+        assertTrue(digestEventRepo.existsById(lateId));
+        assertFalse(digestEventRepo.existsById(early.getEventId()));
+    }
+
+    private DigestEvent event(User doctor, String patientName) {
+        LocalDateTime start = LocalDate.now().plusDays(3).atTime(9, 0);
+        DigestEvent event = new DigestEvent();
+        event.setDoctorId(doctor.getUserId());
+        event.setType(NotificationType.BOOKED);
+        event.setAppointmentId(0);
+        event.setPatientName(patientName);
+        event.setTimeSlotStart(start);
+        event.setTimeSlotEnd(start.plusHours(1));
+        event.setCreatedAt(LocalDateTime.now());
+        return event;
+    }
+}
@@ -0,0 +1,103 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Minimal in-process SMTP server for the mail tests (a stand-in for the Mailpit container of docker-compose)
+// Accepts every message, except the ones to 'rejectedRecipients'; each new session costs 'sessionSetupMillis'
+// (the connection and greeting of a real server)
+public class FakeSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final long sessionSetupMillis;
+    private final Set<String> rejectedRecipients;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger messages = new AtomicInteger();
+
+    public FakeSmtpServer(long sessionSetupMillis, Set<String> rejectedRecipients) throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        this.sessionSetupMillis = sessionSetupMillis;
+        this.rejectedRecipients = rejectedRecipients;
+
+        Thread acceptor = new Thread(this::accept, "fake-smtp");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getSessions() {
+        return sessions.get();
+    }
+
+    public int getMessages() {
+        return messages.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread session = new Thread(() -> serve(socket), "fake-smtp-session");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        sessions.incrementAndGet();
+        try (socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            Thread.sleep(sessionSetupMillis);
+            reply(out, "220 fake-smtp ready");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("RCPT TO:") && rejectedRecipients.stream().anyMatch(line::contains)) {
+                    reply(out, "550 mailbox unavailable");
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 end data with <CR><LF>.<CR><LF>");
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        // Message content is discarded
+                    }
+                    messages.incrementAndGet();
+                    reply(out, "250 queued");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 bye");
+                    return;
+                } else {
+                    // EHLO, MAIL FROM, RCPT TO, RSET, NOOP
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reply(PrintWriter out, String reply) {
+        out.print(reply + "\r\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,118 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.cts.healthcare_appointment_system.services.MailBatcher;
+import com.cts.healthcare_appointment_system.services.MailExecutor;
+import com.cts.healthcare_appointment_system.services.MailExecutor.RejectionPolicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+// Throughput of batched sends against one SMTP session per email, on the in-process FakeSmtpServer
+@Slf4j
+public class MailBatchingThroughputTest {
+
+    private static final int EMAILS = 200;
+
+    private FakeSmtpServer server;
+    private MailExecutor executor;
+    private MailBatcher batcher;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        server.close();
+    }
+
+    @Test
+    void testBatchedSendsShareSmtpSessions() throws Exception {
+        server = new FakeSmtpServer(5, Set.of());
+        JavaMailSenderImpl mailSender = mailSender();
+
+        // Baseline: one session per email, as with mailSender.send(mail) per call
+        long start = System.nanoTime();
+        for (int i = 0; i < EMAILS; i++) {
+            mailSender.send(mail("single" + i + "@gmail.com"));
+        }
+        long singleNanos = System.nanoTime() - start;
+        assertEquals(EMAILS, server.getSessions());
+
+        startBatcher(mailSender);
+        start = System.nanoTime();
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < EMAILS; i++) {
+            results.add(batcher.send(mail("batched" + i + "@gmail.com")));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        long batchedNanos = System.nanoTime() - start;
+
+        int batchedSessions = server.getSessions() - EMAILS;
+        assertEquals(2 * EMAILS, server.getMessages());
+        assertTrue(batchedSessions <= EMAILS / 10, "Expected batches to share sessions, got " + batchedSessions + " sessions");
+
+        log.info("{} emails: one session each {} emails/s, batched {} emails/s over {} sessions",
+                EMAILS, perSecond(singleNanos), perSecond(batchedNanos), batchedSessions);
+    }
+
+    @Test
+    void testRejectedRecipientFailsOnlyItsOwnEmail() throws Exception {
+        server = new FakeSmtpServer(0, Set.of("unknown@gmail.com"));
+        startBatcher(mailSender());
+
+        CompletableFuture<Void> before = batcher.send(mail("first@gmail.com"));
+        CompletableFuture<Void> rejected = batcher.send(mail("unknown@gmail.com"));
+        CompletableFuture<Void> after = batcher.send(mail("second@gmail.com"));
+
+        before.get(10, TimeUnit.SECONDS);
+        after.get(10, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class, () -> rejected.get(10, TimeUnit.SECONDS));
+        assertEquals(2, server.getMessages());
+        assertEquals(1, server.getSessions());
+    }
+
+    private void startBatcher(JavaMailSenderImpl mailSender) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        executor = new MailExecutor(meterRegistry, 4, 100, RejectionPolicy.CALLER_RUNS, Duration.ofSeconds(5), Duration.ofSeconds(5));
+        batcher = new MailBatcher(mailSender, executor, meterRegistry, 50, Duration.ofMillis(50), 1000);
+    }
+
+    private JavaMailSenderImpl mailSender() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.getPort());
+        return mailSender;
+    }
+
+    private SimpleMailMessage mail(String to) {
+        SimpleMailMessage mail = new SimpleMailMessage();
+        mail.setFrom("noreply@healthcare.local");
+        mail.setTo(to);
+        mail.setSubject("Appointment Booked");
+        mail.setText("Your appointment has been successfully booked.");
+        return mail;
+    }
+
+    private long perSecond(long nanos) {
+        return EMAILS * TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+}
@@ -0,0 +1,114 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.cts.healthcare_appointment_system.services.MailExecutor;
+import com.cts.healthcare_appointment_system.services.MailExecutor.RejectionPolicy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MailExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CountDownLatch release;
+    private MailExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void testSaturatedExecutorDropsToTheOutbox() throws Exception {
+        // One worker, one queued send
+        executor = new MailExecutor(meterRegistry, 1, 1, RejectionPolicy.DROP_TO_OUTBOX, Duration.ofSeconds(1), Duration.ofSeconds(5));
+        CompletableFuture<Void> first = executor.submit(this::slowSend);
+        CompletableFuture<Void> queued = executor.submit(this::slowSend);
+
+        CompletableFuture<Void> dropped = executor.submit(this::slowSend);
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> dropped.get(1, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        assertEquals(1.0, meterRegistry.get("mail.executor.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("mail.executor.queue.size").gauge().value());
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertEquals(2, meterRegistry.get("mail.send.latency").timer().count());
+    }
+
+    @Test
+    void testSaturatedExecutorBlocksThenRejects() {
+        executor = new MailExecutor(meterRegistry, 1, 1, RejectionPolicy.BLOCK, Duration.ofMillis(200), Duration.ofSeconds(5));
+        executor.submit(this::slowSend);
+        executor.submit(this::slowSend);
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> rejected = executor.submit(this::slowSend);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(rejected.isCompletedExceptionally());
+    }
+
+    @Test
+    void testSaturatedExecutorRunsOnTheCaller() throws Exception {
+        executor = new MailExecutor(meterRegistry, 1, 1, RejectionPolicy.CALLER_RUNS, Duration.ofSeconds(1), Duration.ofSeconds(5));
+        executor.submit(this::slowSend);
+        executor.submit(this::slowSend);
+
+        String[] sender = new String[1];
+        CompletableFuture<Void> ranHere = executor.submit(() -> sender[0] = Thread.currentThread().getName());
+        ranHere.get(1, TimeUnit.SECONDS);
+        assertEquals(Thread.currentThread().getName(), sender[0]);
+    }
+
+    @Test
+    void testFailedSendIsReported() {
+        executor = new MailExecutor(meterRegistry, 1, 1, RejectionPolicy.CALLER_RUNS, Duration.ofSeconds(1), Duration.ofSeconds(5));
+
+        CompletableFuture<Void> failed = executor.submit(() -> {
+            throw new IllegalStateException("Mail server down");
+        });
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals("Mail server down", ex.getCause().getMessage());
+        assertEquals(1.0, meterRegistry.get("mail.send.failures").counter().count());
+    }
+
+    @Test
+    void testShutdownDrainsQueuedSends() throws Exception {
+        executor = new MailExecutor(meterRegistry, 1, 2, RejectionPolicy.DROP_TO_OUTBOX, Duration.ofSeconds(1), Duration.ofSeconds(5));
+        CompletableFuture<Void> first = executor.submit(this::slowSend);
+        CompletableFuture<Void> queued = executor.submit(this::slowSend);
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(queued.isDone() && !queued.isCompletedExceptionally());
+    }
+
+    private void slowSend() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.healthcare_appointment_system.enums.NotificationStatus;
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.JobLease;
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.repositories.JobLeaseRepository;
+import com.cts.healthcare_appointment_system.repositories.OutboxNotificationRepository;
+import com.cts.healthcare_appointment_system.services.DeadLetterService;
+import com.cts.healthcare_appointment_system.services.EmailService;
+import com.cts.healthcare_appointment_system.services.JobLeaseService;
+import com.cts.healthcare_appointment_system.services.NotificationOutboxDispatcher;
+import com.cts.healthcare_appointment_system.services.NotificationService;
+
+import jakarta.mail.internet.InternetAddress;
+
+@SpringBootTest
+public class NotificationOutboxTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private DeadLetterService deadLetterService;
+
+    @Autowired
+    private NotificationOutboxDispatcher dispatcher;
+
+    @Autowired
+    private OutboxNotificationRepository outboxRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JobLeaseRepository leaseRepo;
+
+    private JobLeaseService pausingReplica;
+
+    @BeforeEach
+    void stubEmailService() {
+        // The outbox dispatcher waits on the returned future
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        pausingReplica = new JobLeaseService(leaseRepo, Duration.ofMinutes(1), "paused-replica");
+    }
+
+    @Test
+    void testRolledBackChangeSendsNothing() {
+        Appointment appointment = appointment(900_001, "rollback");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            notificationService.sendBookedEmail(appointment);
+            status.setRollbackOnly();
+        });
+
+        assertTrue(notificationsOf(900_001).isEmpty());
+        verify(emailService, after(500).never()).sendEmail(eq(appointment.getPatient().getEmail()), anyString(), anyString());
+    }
+
+    @Test
+    void testDuplicateNotificationIsQueuedAndSentOnce() {
+        Appointment appointment = appointment(900_002, "dedup");
+
+        // The dispatcher is paused while the rows are counted
+        JobLease paused = pausedDispatcher();
+        try {
+            notificationService.sendCompletionEmail(appointment);
+            notificationService.sendCompletionEmail(appointment);
+
+            // One row per recipient
+            assertEquals(2, notificationsOf(900_002).size());
+        } finally {
+            pausingReplica.release(paused);
+        }
+        verify(emailService, timeout(5000)).sendEmail(eq(appointment.getPatient().getEmail()), eq("Appointment Completed"), anyString());
+        verify(emailService, timeout(5000)).sendEmail(eq(appointment.getDoctor().getEmail()), eq("Appointment Completed"), anyString());
+
+        OutboxNotification sent = awaitNotification(900_002, n -> n.getRecipientRole() == UserRole.PATIENT && n.getStatus() == NotificationStatus.SENT);
+        assertEquals(1, sent.getAttempts());
+        assertNotNull(sent.getSentAt());
+
+        // A repeat once the first copy went out (e.g. a retried request) is still a duplicate
+        notificationService.sendCompletionEmail(appointment);
+        assertEquals(2, notificationsOf(900_002).size());
+        verify(emailService, after(500).times(1)).sendEmail(eq(appointment.getPatient().getEmail()), eq("Appointment Completed"), anyString());
+    }
+
+    @Test
+    void testDuplicateInTheCallersTransactionDoesNotRollItBack() {
+        Appointment appointment = appointment(900_005, "transactional");
+
+        // Commits, with one row per recipient
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            notificationService.sendBookedEmail(appointment);
+            notificationService.sendBookedEmail(appointment);
+        });
+
+        assertEquals(2, notificationsOf(900_005).size());
+    }
+
+    @Test
+    void testRescheduleBackToAnEarlierSlotIsNotifiedAgain() {
+        Appointment appointment = appointment(900_009, "rescheduled");
+
+        notificationService.sendReminderEmail(appointment);
+        OutboxNotification sent = awaitNotification(900_009, n -> n.getStatus() == NotificationStatus.SENT);
+        assertNotNull(sent.getDedupKey());
+
+        // Moved to another slot and back (two revisions later): the reminder of the same slot is queued again
+        appointment.setRevision(2);
+        notificationService.sendReminderEmail(appointment);
+
+        verify(emailService, timeout(5000).times(2)).sendEmail(eq(appointment.getPatient().getEmail()), anyString(), anyString());
+        awaitNotification(900_009, n -> n.getStatus() == NotificationStatus.SENT && n.getNotificationId() != sent.getNotificationId());
+    }
+
+    @Test
+    void testSentNotificationIsPurgedAfterTheRetention() {
+        Appointment appointment = appointment(900_006, "purged");
+
+        notificationService.sendConsultationEmail(appointment);
+        OutboxNotification sent = awaitNotification(900_006, n -> n.getStatus() == NotificationStatus.SENT);
+
+        // Past the retention period
+        sent.setSentAt(LocalDateTime.now().minusDays(8));
+        outboxRepo.save(sent);
+        dispatcher.purgeSent();
+        assertTrue(notificationsOf(900_006).isEmpty());
+
+        // Its dedup key went with it
+        notificationService.sendConsultationEmail(appointment);
+        verify(emailService, timeout(5000).times(2)).sendEmail(eq(appointment.getPatient().getEmail()), anyString(), anyString());
+        awaitNotification(900_006, n -> n.getStatus() == NotificationStatus.SENT);
+    }
+
+    @Test
+    void testFailedSendIsRetriedGivenUpThenReplayed() {
+        Appointment appointment = appointment(900_003, "failing");
+        when(emailService.sendEmail(eq(appointment.getPatient().getEmail()), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new MailSendException("Mailbox unavailable")));
+
+        notificationService.sendConsultationEmail(appointment);
+
+        // Postponed by the backoff
+        OutboxNotification failed = awaitNotification(900_003, n -> n.getAttempts() == 1);
+        assertEquals(NotificationStatus.PENDING, failed.getStatus());
+        assertTrue(failed.getAvailableAt().isAfter(LocalDateTime.now()));
+        assertTrue(failed.getLastError().contains("Mailbox unavailable"));
+
+        // Due again on its last attempt
+        failed.setAttempts(7);
+        failed.setAvailableAt(LocalDateTime.now());
+        outboxRepo.save(failed);
+
+        OutboxNotification gaveUp = awaitNotification(900_003, n -> n.getStatus() == NotificationStatus.FAILED);
+        assertEquals(8, gaveUp.getAttempts());
+        assertTrue(deadLetterService.getDeadLetters().getBody().stream().anyMatch(d -> d.notificationId() == gaveUp.getNotificationId()));
+
+        // Replayed once the mailbox is back
+        when(emailService.sendEmail(eq(appointment.getPatient().getEmail()), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        deadLetterService.replay(gaveUp.getNotificationId());
+
+        OutboxNotification replayed = awaitNotification(900_003, n -> n.getStatus() == NotificationStatus.SENT);
+        assertEquals(1, replayed.getAttempts());
+        ApiException ex = assertThrows(ApiException.class, () -> deadLetterService.replay(gaveUp.getNotificationId()));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getErrorCode());
+    }
+
+    @Test
+    void testPermanentFailuresAreDeadLetteredRightAway() throws Exception {
+        Appointment appointment = appointment(900_007, "bounced");
+        MailSendException bounced = new MailSendException("Failed messages",
+                new SMTPAddressFailedException(new InternetAddress(appointment.getPatient().getEmail()), "RCPT TO", 550, "No such user"));
+        when(emailService.sendEmail(eq(appointment.getPatient().getEmail()), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(bounced));
+
+        // Rejected by the mail server for good
+        notificationService.sendConsultationEmail(appointment);
+        OutboxNotification rejected = awaitNotification(900_007, n -> n.getStatus() == NotificationStatus.FAILED);
+        assertEquals(1, rejected.getAttempts());
+
+        // No template for it
+        OutboxNotification unrenderable = new OutboxNotification();
+        unrenderable.setType(NotificationType.CONSULTATION);
+        unrenderable.setAppointmentId(900_008);
+        unrenderable.setRecipientRole(UserRole.DOCTOR);
+        unrenderable.setRecipientEmail("unrenderable.doctor@gmail.com");
+        unrenderable.setTimeSlotStart(appointment.getTimeSlotStart());
+        unrenderable.setTimeSlotEnd(appointment.getTimeSlotEnd());
+        unrenderable.setDedupKey("unrenderable:900008");
+        unrenderable.setStatus(NotificationStatus.PENDING);
+        unrenderable.setAvailableAt(LocalDateTime.now());
+        unrenderable.setCreatedAt(LocalDateTime.now());
+        outboxRepo.enqueue(unrenderable);
+
+        OutboxNotification gaveUp = awaitNotification(900_008, n -> n.getStatus() == NotificationStatus.FAILED);
+        assertEquals(1, gaveUp.getAttempts());
+        assertTrue(gaveUp.getLastError().contains("Can't render"));
+        verify(emailService, never()).sendEmail(eq("unrenderable.doctor@gmail.com"), anyString(), anyString());
+    }
+
+    @Test
+    void testReschedulesCollapseIntoTheCancellation() {
+        Appointment appointment = appointment(900_004, "coalesced");
+
+        // Three edits of the slot: only the last reschedule stays queued, held back by the coalescing window
+        for (int i = 1; i <= 3; i++) {
+            appointment.setTimeSlotStart(appointment.getTimeSlotStart().plusHours(1));
+            appointment.setTimeSlotEnd(appointment.getTimeSlotEnd().plusHours(1));
+            notificationService.sendRescheduledEmail(appointment);
+        }
+        List<OutboxNotification> queued = notificationsOf(900_004);
+        assertEquals(1, queued.size());
+        assertEquals(NotificationType.RESCHEDULED, queued.get(0).getType());
+        assertEquals(appointment.getTimeSlotStart(), queued.get(0).getTimeSlotStart());
+        assertTrue(queued.get(0).getAvailableAt().isAfter(LocalDateTime.now()));
+
+        // Then the slot is deleted: the patient only gets the cancellation
+        notificationService.sendCancellationEmail(appointment);
+
+        verify(emailService, timeout(5000)).sendEmail(eq(appointment.getPatient().getEmail()), eq("Appointment Cancelled"), anyString());
+        assertTrue(notificationsOf(900_004).stream().noneMatch(n -> n.getType() == NotificationType.RESCHEDULED));
+        verify(emailService, never()).sendEmail(eq(appointment.getPatient().getEmail()), eq("Appointment Rescheduled"), anyString());
+    }
+
+    // Hold the outbox lease as another replica, so the dispatcher skips its polls until it's released
+    private JobLease pausedDispatcher() {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            Optional<JobLease> lease = pausingReplica.tryAcquire(NotificationOutboxDispatcher.NOTIFICATION_OUTBOX);
+            if (lease.isPresent()) {
+                return lease.get();
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new AssertionError("The outbox lease was never released");
+    }
+
+    private OutboxNotification awaitNotification(int appointmentId, Predicate<OutboxNotification> condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            OutboxNotification match = notificationsOf(appointmentId).stream().filter(condition).findFirst().orElse(null);
+            if (match != null) {
+                return match;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        throw new AssertionError("No notification of appointment " + appointmentId + " reached the expected state");
+    }
+
+    private List<OutboxNotification> notificationsOf(int appointmentId) {
+        return outboxRepo.findAll().stream().filter(n -> n.getAppointmentId() == appointmentId).toList();
+    }
+
+    // The outbox keeps a snapshot, so the appointment and users don't need to be stored
+    private Appointment appointment(int appointmentId, String name) {
+        User doctor = new User();
+        doctor.setName("Dr. " + name);
+        doctor.setEmail(name + ".doctor@gmail.com");
+        doctor.setRole(UserRole.DOCTOR);
+
+        User patient = new User();
+        patient.setName(name + " patient");
+        patient.setEmail(name + ".patient@gmail.com");
+        patient.setRole(UserRole.PATIENT);
+
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(appointmentId);
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        LocalDateTime start = LocalDateTime.now().plusDays(2).withNano(0);
+        appointment.setTimeSlotStart(start);
+        appointment.setTimeSlotEnd(start.plusHours(1));
+        appointment.book();
+        return appointment;
+    }
+}
@@ -0,0 +1,72 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+import com.cts.healthcare_appointment_system.dto.EmailMessage;
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+import com.cts.healthcare_appointment_system.services.NotificationRenderer;
+import com.cts.healthcare_appointment_system.services.NotificationTemplates;
+import com.cts.healthcare_appointment_system.utils.TextTemplate;
+
+public class NotificationRendererTest {
+
+    private final NotificationTemplates templates = new NotificationTemplates();
+    private final NotificationRenderer renderer = new NotificationRenderer(templates);
+
+    @Test
+    void testTemplatesRenderTheSameEmailsAsBefore() {
+        EmailMessage patient = renderer.render(notification(NotificationType.BOOKED, UserRole.PATIENT));
+        assertEquals("patient@gmail.com", patient.to());
+        assertEquals("Appointment Booked", patient.subject());
+        assertEquals("Dear Jane Patient,\n\nYour appointment with Dr. John Doctor has been successfully booked.\n\n"
+                + "Appointment Id:4242\nDate: 2026-03-14\nTime: 10:30:00 AM to 11:30:00 AM\n\n"
+                + "Please ensure you arrive on time.\n\nBest Regards,\nHealthcare Appointment System", patient.body());
+
+        EmailMessage doctor = renderer.render(notification(NotificationType.CANCELLED, UserRole.DOCTOR));
+        assertEquals("Appointment Cancelled", doctor.subject());
+        assertEquals("Dear Dr. John Doctor,\n\nWe regret to inform you that your appointment with Jane Patient on 2026-03-14 at 10:30:00 AM (Appointment ID: 4242) has been cancelled.\n\n"
+                + "If you have any questions or need assistance, please do not hesitate to contact us through our system.\n\n"
+                + "Thank you for your understanding.\n\nBest Regards,\nHealthcare Appointment System", doctor.body());
+    }
+
+    @Test
+    void testEveryNotificationHasItsTemplates() {
+        for (NotificationType type : NotificationType.values()) {
+            // Digests only go to doctors
+            if (type != NotificationType.DIGEST) {
+                assertNotNull(templates.get(type, UserRole.PATIENT), type + " to the patient");
+            }
+        }
+        for (NotificationType type : List.of(NotificationType.BOOKED, NotificationType.CANCELLED, NotificationType.COMPLETED, NotificationType.REMINDER, NotificationType.DIGEST)) {
+            assertNotNull(templates.get(type, UserRole.DOCTOR), type + " to the doctor");
+        }
+    }
+
+    @Test
+    void testUnknownPlaceholderFailsToCompile() {
+        assertThrows(IllegalArgumentException.class, () -> TextTemplate.compile("Dear ${nurseName},", NotificationTemplates.VARIABLES));
+        assertThrows(IllegalArgumentException.class, () -> TextTemplate.compile("Dear ${patientName,", NotificationTemplates.VARIABLES));
+    }
+
+    private OutboxNotification notification(NotificationType type, UserRole role) {
+        OutboxNotification n = new OutboxNotification();
+        n.setType(type);
+        n.setAppointmentId(4242);
+        n.setRecipientRole(role);
+        n.setRecipientEmail(role == UserRole.DOCTOR ? "doctor@gmail.com" : "patient@gmail.com");
+        n.setPatientName("Jane Patient");
+        n.setDoctorName("John Doctor");
+        LocalDateTime start = LocalDateTime.of(2026, 3, 14, 10, 30);
+        n.setTimeSlotStart(start);
+        n.setTimeSlotEnd(start.plusHours(1));
+        return n;
+    }
+}
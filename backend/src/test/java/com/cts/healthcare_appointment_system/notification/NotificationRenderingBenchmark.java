@@ -0,0 +1,101 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cts.healthcare_appointment_system.dto.EmailMessage;
+import com.cts.healthcare_appointment_system.enums.NotificationType;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+import com.cts.healthcare_appointment_system.services.NotificationRenderer;
+import com.cts.healthcare_appointment_system.services.NotificationTemplates;
+
+// Rendering cost of a booked email (both recipients): the former string concatenation, with a formatter per call,
+// against the precompiled templates
+// Run with: mvn test-compile exec:java -Dexec.mainClass=com.cts.healthcare_appointment_system.notification.NotificationRenderingBenchmark -Dexec.classpathScope=test
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationRenderingBenchmark {
+
+    private NotificationRenderer renderer;
+    private OutboxNotification toDoctor;
+    private OutboxNotification toPatient;
+
+    @Setup
+    public void setUp() {
+        renderer = new NotificationRenderer(new NotificationTemplates());
+        toDoctor = notification(UserRole.DOCTOR, "doctor@gmail.com");
+        toPatient = notification(UserRole.PATIENT, "patient@gmail.com");
+    }
+
+    @Benchmark
+    public void concatenation(Blackhole blackhole) {
+        // As NotificationService.sendBookedEmail() built it
+        String doctorName = toDoctor.getDoctorName();
+        String patientName = toDoctor.getPatientName();
+        int appointmentId = toDoctor.getAppointmentId();
+        LocalDate dateOfAppointment = toDoctor.getTimeSlotStart().toLocalDate();
+        String timeStartOfAppointment = formatTime(toDoctor.getTimeSlotStart().toLocalTime());
+        String timeEndOfAppointment = formatTime(toDoctor.getTimeSlotEnd().toLocalTime());
+
+        String subject = "Appointment Booked";
+
+        String patientEmailBody = "Dear " + patientName + "," + "\n\n" + "Your appointment with Dr. " + doctorName + " has been successfully booked.\n\n" + "Appointment Id:" + appointmentId + "\nDate: " + dateOfAppointment + "\nTime: " + timeStartOfAppointment + " to " + timeEndOfAppointment + "\n\n" + "Please ensure you arrive on time." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
+
+        String doctorEmailBody = "Dear Dr. " + doctorName + "," + "\n\n" + "A new appointment has been booked with " + patientName + ".\n\n" + "Appointment Id:" + appointmentId + "\nDate: " + dateOfAppointment + "\nTime: " + timeStartOfAppointment + " to " + timeEndOfAppointment + "\n\n" + "Please be prepared for the consultation." + "\n\n" + "Best Regards," + "\n" + "Healthcare Appointment System";
+
+        blackhole.consume(new EmailMessage(toDoctor.getRecipientEmail(), subject, doctorEmailBody));
+        blackhole.consume(new EmailMessage(toPatient.getRecipientEmail(), subject, patientEmailBody));
+    }
+
+    @Benchmark
+    public void templates(Blackhole blackhole) {
+        blackhole.consume(renderer.render(toDoctor));
+        blackhole.consume(renderer.render(toPatient));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotificationRenderingBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private String formatTime(LocalTime time){
+        DateTimeFormatter formmater = DateTimeFormatter.ofPattern("hh:mm:ss a");
+        return time.format(formmater);
+    }
+
+    private static OutboxNotification notification(UserRole role, String email) {
+        OutboxNotification n = new OutboxNotification();
+        n.setType(NotificationType.BOOKED);
+        n.setAppointmentId(4242);
+        n.setRecipientRole(role);
+        n.setRecipientEmail(email);
+        n.setPatientName("Jane Patient");
+        n.setDoctorName("John Doctor");
+        LocalDateTime start = LocalDateTime.of(2026, 3, 14, 10, 30);
+        n.setTimeSlotStart(start);
+        n.setTimeSlotEnd(start.plusHours(1));
+        return n;
+    }
+}
@@ -0,0 +1,84 @@
+package com.cts.healthcare_appointment_system.notification;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cts.healthcare_appointment_system.dto.EmailMessage;
+import com.cts.healthcare_appointment_system.models.JobLease;
+import com.cts.healthcare_appointment_system.models.OutboxNotification;
+import com.cts.healthcare_appointment_system.repositories.OutboxNotificationRepository;
+import com.cts.healthcare_appointment_system.services.EmailService;
+import com.cts.healthcare_appointment_system.services.JobLeaseService;
+import com.cts.healthcare_appointment_system.services.NotificationOutboxDispatcher;
+import com.cts.healthcare_appointment_system.services.NotificationRenderer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxLeaseTest {
+
+    private static final int BATCH_SIZE = 5;
+
+    @Mock
+    private OutboxNotificationRepository outboxRepo;
+
+    @Mock
+    private NotificationRenderer renderer;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private JobLeaseService leaseService;
+
+    @Test
+    void testPollStopsBeforeTheLeaseRunsOut() {
+        // The lease expires in one second, a batch is allowed 100ms to send
+        JobLease lease = new JobLease(NotificationOutboxDispatcher.NOTIFICATION_OUTBOX, "test-owner", LocalDateTime.now().plusSeconds(1), 1,
+                System.nanoTime() + Duration.ofSeconds(1).toNanos());
+        when(leaseService.tryAcquire(NotificationOutboxDispatcher.NOTIFICATION_OUTBOX)).thenReturn(Optional.of(lease));
+
+        // An outbox which never drains, every batch is full and takes 100ms
+        List<OutboxNotification> batch = IntStream.range(0, BATCH_SIZE).mapToObj(OutboxLeaseTest::notification).toList();
+        when(outboxRepo.findDue(any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            return batch;
+        });
+        when(renderer.render(any())).thenReturn(new EmailMessage("lease@gmail.com", "Subject", "Body"));
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        NotificationOutboxDispatcher dispatcher = new NotificationOutboxDispatcher(outboxRepo, renderer, emailService, leaseService,
+                new SimpleMeterRegistry(), BATCH_SIZE, 8, Duration.ofSeconds(30), Duration.ofHours(1), 5, Duration.ofMinutes(1),
+                Duration.ofMillis(100), Duration.ofDays(7));
+        dispatcher.poll();
+
+        // Batches stop once less than 200ms of the lease are left, about 8 of them
+        long batches = mockingDetails(outboxRepo).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("findDue"))
+                .count();
+        assertTrue(batches >= 2 && batches <= 9, "Dispatched " + batches + " batches");
+        assertTrue(lease.remaining().compareTo(Duration.ZERO) > 0);
+        verify(leaseService).release(lease);
+    }
+
+    private static OutboxNotification notification(int id) {
+        OutboxNotification n = new OutboxNotification();
+        n.setNotificationId(id);
+        n.setRecipientEmail("lease@gmail.com");
+        return n;
+    }
+}
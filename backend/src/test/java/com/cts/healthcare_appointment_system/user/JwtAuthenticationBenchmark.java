@@ -0,0 +1,98 @@
+package com.cts.healthcare_appointment_system.user;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.security.JwtKeyRing;
+import com.cts.healthcare_appointment_system.security.JwtUtils;
+import com.cts.healthcare_appointment_system.security.SigningKeyManager;
+import com.cts.healthcare_appointment_system.security.UserPrincipal;
+import com.cts.healthcare_appointment_system.security.VerifiedToken;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+// Token checks of one authenticated request: the former path (the key decoded and a parser built for each of the three
+// parses: extractUserEmail(), then validateToken() parsing again for the subject and the expiry) against a single verify()
+// with the shared key ring and parser
+// Run with: mvn test-compile exec:java -Dexec.mainClass=com.cts.healthcare_appointment_system.user.JwtAuthenticationBenchmark -Dexec.classpathScope=test
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationBenchmark {
+
+    private static final String EMAIL = "patient@gmail.com";
+
+    private String secret;
+    private String legacyToken;
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        SecretKey key = KeyGenerator.getInstance("HmacSHA256").generateKey();
+        secret = Base64.getEncoder().encodeToString(key.getEncoded());
+        legacyToken = Jwts.builder().subject(EMAIL).issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(7)))
+                .signWith(legacySecureKey()).compact();
+
+        LocalDateTime now = LocalDateTime.now();
+        JwtKeyRing keyRing = new JwtKeyRing();
+        keyRing.load(List.of(SigningKeyManager.generate(now, now.plusDays(7), now.plusDays(14))), now);
+        jwtUtils = new JwtUtils(keyRing, Duration.ofDays(7));
+        token = jwtUtils.generateJWTToken(new UserPrincipal(7, EMAIL, UserRole.PATIENT, 0));
+    }
+
+    @Benchmark
+    public boolean threeParses() {
+        // As JwtAuthenticationFilter did it
+        String userEmail = legacyClaim(legacyToken, Claims::getSubject);
+        return legacyClaim(legacyToken, Claims::getSubject).equals(userEmail)
+                && !legacyClaim(legacyToken, Claims::getExpiration).before(new Date());
+    }
+
+    @Benchmark
+    public VerifiedToken singleVerify() {
+        return jwtUtils.verify(token).orElseThrow();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtAuthenticationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private SecretKey legacySecureKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+    }
+
+    private <T> T legacyClaim(String jwtToken, Function<Claims, T> claimResolver) {
+        return claimResolver.apply(Jwts.parser().verifyWith(legacySecureKey()).build().parseSignedClaims(jwtToken).getPayload());
+    }
+}
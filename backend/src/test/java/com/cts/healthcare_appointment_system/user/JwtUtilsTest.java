@@ -0,0 +1,77 @@
+package com.cts.healthcare_appointment_system.user;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.SigningKey;
+import com.cts.healthcare_appointment_system.security.JwtKeyRing;
+import com.cts.healthcare_appointment_system.security.JwtUtils;
+import com.cts.healthcare_appointment_system.security.SigningKeyManager;
+import com.cts.healthcare_appointment_system.security.UserPrincipal;
+import com.cts.healthcare_appointment_system.security.VerifiedToken;
+
+public class JwtUtilsTest {
+
+    private static final UserPrincipal PATIENT = new UserPrincipal(7, "patient@gmail.com", UserRole.PATIENT, 3);
+    private static final Duration VALIDITY = Duration.ofDays(7);
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final SigningKey current = SigningKeyManager.generate(now.minusDays(1), now.plusDays(6), now.plusDays(13));
+
+    @Test
+    void testIssuedTokenVerifies() {
+        JwtUtils jwtUtils = jwtUtils(current);
+        String token = jwtUtils.generateJWTToken(PATIENT);
+
+        VerifiedToken verified = jwtUtils.verify(token).orElseThrow();
+        assertEquals("patient@gmail.com", verified.userEmail());
+        assertTrue(verified.expiration().after(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(6))));
+        // Enough to authorize the request without a lookup
+        assertTrue(verified.isSelfContained());
+        assertEquals(PATIENT, verified.toPrincipal());
+    }
+
+    @Test
+    void testTamperedOrForeignTokensAreRejected() {
+        JwtUtils jwtUtils = jwtUtils(current);
+        String token = jwtUtils.generateJWTToken(PATIENT);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertTrue(jwtUtils.verify(tampered).isEmpty());
+        // Signed with a key this ring doesn't have
+        SigningKey foreign = SigningKeyManager.generate(now.minusDays(1), now.plusDays(6), now.plusDays(13));
+        assertTrue(jwtUtils.verify(jwtUtils(foreign).generateJWTToken(PATIENT)).isEmpty());
+        assertTrue(jwtUtils.verify("not-a-jwt").isEmpty());
+    }
+
+    @Test
+    void testRotatedKeyKeepsVerifyingItsTokensAcrossReplicas() {
+        // One replica signs with the current key, before the next one activates
+        SigningKey next = SigningKeyManager.generate(now.plusHours(1), now.plusDays(7), now.plusDays(14));
+        String signedBefore = jwtUtils(current, next).generateJWTToken(PATIENT);
+
+        // Once the next key signs, the tokens of the retired one still verify, on any replica loading the same keys
+        SigningKey activeNext = new SigningKey(next.getKid(), next.getSecret(), now.minusMinutes(1), next.getRetiresAt(), next.getExpiresAt(), next.getCreatedAt());
+        JwtUtils otherReplica = jwtUtils(current, activeNext);
+        String signedAfter = otherReplica.generateJWTToken(PATIENT);
+
+        assertTrue(otherReplica.verify(signedBefore).isPresent());
+        assertTrue(otherReplica.verify(signedAfter).isPresent());
+        // Until the retired key expires
+        assertTrue(jwtUtils(activeNext).verify(signedBefore).isEmpty());
+    }
+
+    private JwtUtils jwtUtils(SigningKey... keys) {
+        JwtKeyRing keyRing = new JwtKeyRing();
+        keyRing.load(List.of(keys), now);
+        return new JwtUtils(keyRing, VALIDITY);
+    }
+}
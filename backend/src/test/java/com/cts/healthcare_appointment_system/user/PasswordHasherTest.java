@@ -0,0 +1,136 @@
+package com.cts.healthcare_appointment_system.user;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.security.PasswordHasher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PasswordHasherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHasher hasher;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hasher.shutdown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testHashesWithTheConfiguredCostOnTheHashingPool() {
+        hasher = new PasswordHasher(meterRegistry, 5, 2, 8, Duration.ofSeconds(5));
+
+        String hash = hasher.encode("alex@cr7");
+
+        assertTrue(hash.startsWith("$2a$05$"));
+        assertTrue(hasher.matches("alex@cr7", hash));
+        assertFalse(hasher.matches("wrong", hash));
+        assertEquals(1, meterRegistry.get("security.password.hashing.latency").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("security.password.hashing.latency").tag("operation", "verify").timer().count());
+    }
+
+    @Test
+    void testOnlyHashesOfAnotherCostNeedRehashing() {
+        hasher = new PasswordHasher(meterRegistry, 5, 1, 8, Duration.ofSeconds(5));
+
+        assertFalse(hasher.upgradeEncoding(new BCryptPasswordEncoder(5).encode("alex@cr7")));
+        assertTrue(hasher.upgradeEncoding(new BCryptPasswordEncoder(4).encode("alex@cr7")));
+        // Lowering the cost rehashes too
+        assertTrue(hasher.upgradeEncoding(new BCryptPasswordEncoder(6).encode("alex@cr7")));
+        assertFalse(hasher.upgradeEncoding("not a bcrypt hash"));
+        assertEquals(2.0, meterRegistry.get("security.password.rehashed").counter().count());
+    }
+
+    @Test
+    void testSaturatedPoolRejectsWithTooManyRequests() throws Exception {
+        // One worker and one queued hash at most, a cost of 14 keeps the worker busy long enough
+        hasher = new PasswordHasher(meterRegistry, 14, 1, 1, Duration.ofSeconds(30));
+
+        callers.submit(() -> hasher.encode("first"));
+        waitForGauge("security.password.hashing.active", 1);
+        callers.submit(() -> hasher.encode("second"));
+        waitForGauge("security.password.hashing.queue.size", 1);
+
+        ApiException ex = assertThrows(ApiException.class, () -> hasher.encode("third"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, ex.getErrorCode());
+        assertEquals(1.0, meterRegistry.get("security.password.hashing.rejected").counter().count());
+    }
+
+    @Test
+    void testLoginRehashesAPasswordOfAnotherCost() {
+        hasher = new PasswordHasher(meterRegistry, 5, 1, 8, Duration.ofSeconds(5));
+        UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+        DaoAuthenticationProvider provider = provider("alex@gmail.com", new BCryptPasswordEncoder(4).encode("alex@cr7"), passwordService);
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("alex@gmail.com", "alex@cr7"));
+
+        verify(passwordService).updatePassword(any(), argThat(hash -> hash.startsWith("$2a$05$") && hasher.matches("alex@cr7", hash)));
+    }
+
+    @Test
+    void testLoginKeepsAPasswordOfTheConfiguredCost() {
+        hasher = new PasswordHasher(meterRegistry, 5, 1, 8, Duration.ofSeconds(5));
+        UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+        DaoAuthenticationProvider provider = provider("alex@gmail.com", hasher.encode("alex@cr7"), passwordService);
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("alex@gmail.com", "alex@cr7"));
+
+        verify(passwordService, never()).updatePassword(any(), any());
+    }
+
+    private DaoAuthenticationProvider provider(String email, String hash, UserDetailsPasswordService passwordService) {
+        UserDetails user = User.withUsername(email).password(hash).authorities("PATIENT").build();
+        UserDetailsService userDetailsService = mock(UserDetailsService.class);
+        when(userDetailsService.loadUserByUsername(eq(email))).thenReturn(user);
+        when(passwordService.updatePassword(any(), any())).thenReturn(user);
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setPasswordEncoder(hasher);
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(passwordService);
+        return provider;
+    }
+
+    private void waitForGauge(String name, int value) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(name).gauge().value() < value && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(value, meterRegistry.get(name).gauge().value());
+    }
+}
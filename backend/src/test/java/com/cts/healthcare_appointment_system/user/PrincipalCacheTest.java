@@ -0,0 +1,67 @@
+package com.cts.healthcare_appointment_system.user;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.security.PrincipalCache;
+import com.cts.healthcare_appointment_system.security.UserPrincipal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class PrincipalCacheTest {
+
+    @Mock
+    private UserRepository userRepo;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PrincipalCache(userRepo, meterRegistry, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testRepeatedRequestsQueryTheUserOnce() {
+        UserPrincipal principal = new UserPrincipal(1, "alex@gmail.com", UserRole.PATIENT, 0);
+        when(userRepo.findPrincipalByEmail("alex@gmail.com")).thenReturn(Optional.of(principal));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(principal, cache.get("alex@gmail.com").orElseThrow());
+        }
+
+        verify(userRepo, times(1)).findPrincipalByEmail("alex@gmail.com");
+        assertEquals(2.0, meterRegistry.get("security.principal.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("security.principal.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(1, meterRegistry.get("security.principal.cache.load").timer().count());
+    }
+
+    @Test
+    void testInvalidatedPrincipalIsLoadedAgain() {
+        when(userRepo.findPrincipalByEmail("alex@gmail.com"))
+                .thenReturn(Optional.of(new UserPrincipal(1, "alex@gmail.com", UserRole.PATIENT, 0)))
+                .thenReturn(Optional.empty());
+
+        assertTrue(cache.get("alex@gmail.com").isPresent());
+        // e.g. the user was deleted
+        cache.invalidate("alex@gmail.com");
+
+        assertTrue(cache.get("alex@gmail.com").isEmpty());
+        verify(userRepo, times(2)).findPrincipalByEmail("alex@gmail.com");
+    }
+}
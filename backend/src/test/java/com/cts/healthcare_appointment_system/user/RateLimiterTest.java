@@ -0,0 +1,121 @@
+package com.cts.healthcare_appointment_system.user;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.security.RateLimitFilter;
+import com.cts.healthcare_appointment_system.security.RateLimitProperties;
+import com.cts.healthcare_appointment_system.security.RateLimitProperties.Route;
+import com.cts.healthcare_appointment_system.security.RateLimiter;
+import com.cts.healthcare_appointment_system.security.UserPrincipal;
+import com.cts.healthcare_appointment_system.utils.TokenBuckets;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new RateLimiter(new RateLimitProperties(List.of(
+                new Route("login", "POST", "/users/login", 2, Duration.ofMinutes(1)),
+                new Route("default", null, "/**", 3, Duration.ofMinutes(1)))), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testBurstOfCapacityThenRetryAfterOneRefill() {
+        assertTrue(rateLimiter.check("POST", "/users/login", "ip:10.0.0.1").isEmpty());
+        assertTrue(rateLimiter.check("POST", "/users/login", "ip:10.0.0.1").isEmpty());
+
+        Optional<Duration> retryAfter = rateLimiter.check("POST", "/users/login", "ip:10.0.0.1");
+        assertTrue(retryAfter.isPresent());
+        // One token every 30 seconds
+        assertTrue(retryAfter.get().compareTo(Duration.ofSeconds(29)) > 0 && retryAfter.get().compareTo(Duration.ofSeconds(30)) <= 0);
+        assertEquals(1.0, meterRegistry.get("security.rate-limit.rejected").tag("route", "login").counter().count());
+
+        // Other clients, and the other routes of the same client, have their own buckets
+        assertTrue(rateLimiter.check("POST", "/users/login", "ip:10.0.0.2").isEmpty());
+        assertTrue(rateLimiter.check("GET", "/availabilities", "ip:10.0.0.1").isEmpty());
+    }
+
+    @Test
+    void testFirstMatchingRouteApplies() {
+        // A GET on the login path isn't the login route
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.check("GET", "/users/login", "user:7").isEmpty());
+        }
+        assertTrue(rateLimiter.check("GET", "/appointments", "user:7").isPresent());
+        assertEquals(1.0, meterRegistry.get("security.rate-limit.rejected").tag("route", "default").counter().count());
+        assertEquals(0.0, meterRegistry.get("security.rate-limit.rejected").tag("route", "login").counter().count());
+    }
+
+    @Test
+    void testOnlyRefilledBucketsAreEvicted() throws InterruptedException {
+        TokenBuckets<String> buckets = new TokenBuckets<>(2, Duration.ofSeconds(1));
+
+        buckets.tryAcquire("idle");
+        buckets.tryAcquire("busy");
+        buckets.tryAcquire("busy");
+        Thread.sleep(600);
+        // 'idle' refilled its token after 500ms, 'busy' still misses one
+        buckets.evictFull();
+
+        assertEquals(1, buckets.size());
+        assertTrue(buckets.tryAcquire("busy").isZero());
+        assertFalse(buckets.tryAcquire("busy").isZero());
+    }
+
+    @Test
+    void testFilterRejectsWithRetryAfterPerAuthenticatedUser() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter);
+        UserPrincipal principal = new UserPrincipal(7, "alex@gmail.com", UserRole.PATIENT, 0);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request("10.0.0.1"), response, chain);
+            assertEquals(200, response.getStatus());
+            assertTrue(chain.getRequest() != null);
+        }
+
+        // Same user from another address, still the same bucket
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request("10.0.0.2"), response, chain);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("20", response.getHeader("Retry-After"));
+        assertNull(chain.getRequest());
+    }
+
+    private MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/availabilities");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
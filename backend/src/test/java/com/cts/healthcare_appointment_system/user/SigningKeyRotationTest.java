@@ -0,0 +1,86 @@
+package com.cts.healthcare_appointment_system.user;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.SigningKey;
+import com.cts.healthcare_appointment_system.repositories.SigningKeyRepository;
+import com.cts.healthcare_appointment_system.security.JwtKeyRing;
+import com.cts.healthcare_appointment_system.security.JwtUtils;
+import com.cts.healthcare_appointment_system.security.SigningKeyManager;
+import com.cts.healthcare_appointment_system.security.UserPrincipal;
+import com.cts.healthcare_appointment_system.services.JobLeaseService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest
+public class SigningKeyRotationTest {
+
+    @Autowired
+    private SigningKeyManager keyManager;
+
+    @Autowired
+    private SigningKeyRepository keyRepo;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Test
+    void testNextKeyIsPublishedAheadAndOldTokensStillVerify() {
+        String token = jwtUtils.generateJWTToken(new UserPrincipal(1, "rotation@gmail.com", UserRole.PATIENT, 0));
+
+        // The signing key retires within 'publish-ahead' (1h)
+        LocalDateTime now = LocalDateTime.now();
+        List<SigningKey> keys = keyRepo.findByExpiresAtAfter(now);
+        keys.forEach(k -> k.setRetiresAt(now.plusMinutes(30)));
+        keyRepo.saveAll(keys);
+
+        keyManager.refresh();
+
+        SigningKey next = keyRepo.findByExpiresAtAfter(now).stream().max(Comparator.comparing(SigningKey::getActivatesAt)).orElseThrow();
+        assertFalse(keys.stream().anyMatch(k -> k.getKid().equals(next.getKid())));
+        // Published ahead, it doesn't sign yet
+        assertTrue(next.getActivatesAt().isAfter(now.plusMinutes(59)));
+        assertTrue(jwtUtils.verify(token).isPresent());
+
+        // Nothing more to publish on the next refresh
+        keyManager.refresh();
+        assertEquals(keys.size() + 1, keyRepo.findByExpiresAtAfter(now).size());
+    }
+
+    @Test
+    void testReplicaWithoutTheLeaseWaitsForTheFirstKey() {
+        SigningKeyRepository repo = mock(SigningKeyRepository.class);
+        JobLeaseService leaseService = mock(JobLeaseService.class);
+        JwtKeyRing keyRing = new JwtKeyRing();
+        LocalDateTime now = LocalDateTime.now();
+        SigningKey created = SigningKeyManager.generate(now, now.plusDays(7), now.plusDays(14));
+
+        // Another replica holds the rotation lease and creates the first key meanwhile
+        when(repo.findByExpiresAtAfter(any())).thenReturn(List.of()).thenReturn(List.of(created));
+        when(leaseService.tryAcquire(SigningKeyManager.KEY_ROTATION)).thenReturn(Optional.empty());
+
+        SigningKeyManager manager = new SigningKeyManager(repo, leaseService, keyRing, new SimpleMeterRegistry(),
+                Duration.ofDays(7), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofDays(7));
+        manager.init();
+
+        verify(repo, never()).save(any());
+        assertEquals(created.getKid(), keyRing.signingKey(LocalDateTime.now()).kid());
+    }
+}
@@ -0,0 +1,87 @@
+package com.cts.healthcare_appointment_system.user;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.cts.healthcare_appointment_system.dto.UserTokenVersion;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.security.TokenVersionTable;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenVersionTableTest {
+
+    @Mock
+    private UserRepository userRepo;
+
+    @Test
+    void testOnlyTheCurrentVersionOfAnExistingUserIsAccepted() {
+        when(userRepo.findAllTokenVersions()).thenReturn(List.of(new UserTokenVersion(1, 0), new UserTokenVersion(3, 2)));
+        TokenVersionTable table = new TokenVersionTable(userRepo, new SimpleMeterRegistry(), true);
+        assertFalse(table.isReady());
+        table.refresh();
+
+        assertTrue(table.isReady());
+        assertTrue(table.isCurrent(1, 0));
+        assertTrue(table.isCurrent(3, 2));
+        // Issued before a password change
+        assertFalse(table.isCurrent(3, 1));
+        // Deleted
+        assertFalse(table.isCurrent(2, 0));
+        // Registered since the last refresh
+        assertTrue(table.isCurrent(4, 0));
+    }
+
+    @Test
+    void testLocalChangesApplyBeforeTheNextRefresh() {
+        when(userRepo.findAllTokenVersions())
+                .thenReturn(List.of(new UserTokenVersion(1, 0), new UserTokenVersion(2, 0)))
+                .thenReturn(List.of(new UserTokenVersion(1, 1)));
+        TokenVersionTable table = new TokenVersionTable(userRepo, new SimpleMeterRegistry(), true);
+        table.refresh();
+
+        table.versionChanged(1, 1);
+        table.userDeleted(2);
+        assertFalse(table.isCurrent(1, 0));
+        assertTrue(table.isCurrent(1, 1));
+        assertFalse(table.isCurrent(2, 0));
+
+        // Caught up by the reload
+        table.refresh();
+        assertTrue(table.isCurrent(1, 1));
+        assertFalse(table.isCurrent(2, 0));
+    }
+
+    @Test
+    void testReloadAheadOfTheLocalChangeReplacesIt() {
+        when(userRepo.findAllTokenVersions())
+                .thenReturn(List.of(new UserTokenVersion(1, 1)))
+                .thenReturn(List.of(new UserTokenVersion(1, 3)));
+        TokenVersionTable table = new TokenVersionTable(userRepo, new SimpleMeterRegistry(), true);
+        table.refresh();
+
+        // Changed here, then again on another replica
+        table.versionChanged(1, 2);
+        assertTrue(table.isCurrent(1, 2));
+        table.refresh();
+
+        assertFalse(table.isCurrent(1, 2));
+        assertTrue(table.isCurrent(1, 3));
+    }
+
+    @Test
+    void testDisabledTableIsNeverReady() {
+        TokenVersionTable table = new TokenVersionTable(userRepo, new SimpleMeterRegistry(), false);
+        table.refresh();
+
+        assertFalse(table.isReady());
+    }
+}
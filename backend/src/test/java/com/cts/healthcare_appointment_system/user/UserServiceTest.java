@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,6 +21,8 @@ import com.cts.healthcare_appointment_system.dto.UserUpdateDTO;
 import com.cts.healthcare_appointment_system.enums.UserRole;
 import com.cts.healthcare_appointment_system.models.User;
 import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.security.PrincipalCache;
+import com.cts.healthcare_appointment_system.security.TokenVersionTable;
 import com.cts.healthcare_appointment_system.services.UserService;
  
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +36,12 @@ public class UserServiceTest {
  
     @Mock
     private PasswordEncoder encoder;
+
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private TokenVersionTable tokenVersions;
    
     @Test
     void testGetAllUsers() {
@@ -94,8 +103,38 @@ public class UserServiceTest {
         User changedUser = service.changeUserDetails(dto).getBody();
  
         assertEquals(changedUser.getName(), "Rohit");
+        // The cached principal of the old credentials is dropped
+        assertEquals(1, changedUser.getTokenVersion());
+        verify(principalCache).invalidate("Rohit@gmail.com");
+        verify(tokenVersions).versionChanged(1, 1);
     }
- 
+
+    @Test
+    void testChangeUserDetailsWithSamePasswordKeepsTokens() {
+
+        User user = new User();
+        user.setUserId(1);
+        user.setName("Rohit");
+        user.setEmail("Rohit@gmail.com");
+        user.setPassword("hashed");
+
+        UserUpdateDTO dto = new UserUpdateDTO();
+        dto.setUserId(user.getUserId());
+        dto.setName("Rohit Sharma");
+        dto.setPassword("Rohit@cr7");
+
+        when(repo.findById(1)).thenReturn(Optional.of(user));
+        when(encoder.matches("Rohit@cr7", "hashed")).thenReturn(true);
+
+        User changedUser = service.changeUserDetails(dto).getBody();
+
+        assertEquals("Rohit Sharma", changedUser.getName());
+        // The password is the stored one, so the issued tokens stay valid
+        assertEquals("hashed", changedUser.getPassword());
+        assertEquals(0, changedUser.getTokenVersion());
+        verify(tokenVersions, never()).versionChanged(1, 1);
+    }
+
     @Test
     void testDeleteUserById() {
     	
@@ -0,0 +1,129 @@
+package com.cts.healthcare_appointment_system.waitlist;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.cts.healthcare_appointment_system.TestUsers;
+import com.cts.healthcare_appointment_system.dto.AppointmentDTO;
+import com.cts.healthcare_appointment_system.dto.WaitlistDTO;
+import com.cts.healthcare_appointment_system.enums.AppointmentStatus;
+import com.cts.healthcare_appointment_system.enums.UserRole;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.models.User;
+import com.cts.healthcare_appointment_system.models.WaitlistEntry;
+import com.cts.healthcare_appointment_system.repositories.AppointmentRepository;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.repositories.WaitlistRepository;
+import com.cts.healthcare_appointment_system.services.AppointmentService;
+import com.cts.healthcare_appointment_system.services.EmailService;
+import com.cts.healthcare_appointment_system.services.WaitlistService;
+
+@SpringBootTest
+public class WaitlistAutoBookingTest {
+
+    @MockitoBean
+    private EmailService emailService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private AvailabilityRepository availabilityRepo;
+
+    @Autowired
+    private AppointmentRepository appointmentRepo;
+
+    @Autowired
+    private WaitlistRepository waitlistRepo;
+
+    @BeforeEach
+    void stubEmailService() {
+        // The outbox dispatcher waits on the returned future
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void testCancelledSlotIsBookedForTheFirstWaitlistedPatient() throws InterruptedException {
+        User doctor = TestUsers.save(userRepo, "Dr. Waitlist", "waitlist.doctor@gmail.com", UserRole.DOCTOR);
+        User booker = TestUsers.save(userRepo, "Booker", "waitlist.booker@gmail.com", UserRole.PATIENT);
+        User first = TestUsers.save(userRepo, "First Waiter", "waitlist.first@gmail.com", UserRole.PATIENT);
+        User second = TestUsers.save(userRepo, "Second Waiter", "waitlist.second@gmail.com", UserRole.PATIENT);
+
+        LocalDateTime start = LocalDateTime.now().plusDays(4).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        LocalDateTime end = start.plusHours(1);
+
+        Availability availability = new Availability();
+        availability.setDoctor(doctor);
+        availability.setTimeSlotStart(start);
+        availability.setTimeSlotEnd(end);
+        availabilityRepo.save(availability);
+
+        int appointmentId = appointmentService.saveAppointment(new AppointmentDTO(booker.getUserId(), doctor.getUserId(), start, end))
+                .getBody().getAppointmentId();
+
+        waitlistService.joinWaitlist(new WaitlistDTO(first.getUserId(), doctor.getUserId(), start.toLocalDate()));
+        waitlistService.joinWaitlist(new WaitlistDTO(second.getUserId(), doctor.getUserId(), start.toLocalDate()));
+
+        appointmentService.cancelAppointment(appointmentId);
+
+        // The slot is offered asynchronously, once the cancellation commits
+        List<Appointment> booked = List.of();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ((booked.isEmpty() || !waitlistRepo.findByPatientUserIdOrderByWaitDateAsc(first.getUserId()).isEmpty())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            booked = appointmentRepo.findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(doctor.getUserId(), start, end).stream()
+                    .filter(a -> a.getStatus() == AppointmentStatus.BOOKED)
+                    .toList();
+        }
+
+        assertEquals(1, booked.size());
+        assertEquals(first.getUserId(), booked.get(0).getPatient().getUserId());
+        assertTrue(waitlistRepo.findByPatientUserIdOrderByWaitDateAsc(first.getUserId()).isEmpty());
+        assertEquals(1, waitlistRepo.findByPatientUserIdOrderByWaitDateAsc(second.getUserId()).size());
+    }
+
+    @Test
+    void testClaimedEntryIsRestoredInItsPlace() {
+        User doctor = TestUsers.save(userRepo, "Dr. Restore", "restore.doctor@gmail.com", UserRole.DOCTOR);
+        User patient = TestUsers.save(userRepo, "Restored", "restore.patient@gmail.com", UserRole.PATIENT);
+        LocalDate date = LocalDate.now().plusDays(5);
+
+        int waitlistId = waitlistService.joinWaitlist(new WaitlistDTO(patient.getUserId(), doctor.getUserId(), date)).getBody().getWaitlistId();
+        WaitlistEntry entry = waitlistRepo.findById(waitlistId).orElseThrow();
+
+        // Claimed once, the second claim (e.g. by another replica, or after the patient left) finds nothing
+        assertEquals(1, waitlistRepo.claim(entry.getWaitlistId()));
+        assertEquals(0, waitlistRepo.claim(entry.getWaitlistId()));
+
+        waitlistRepo.restore(entry.getWaitlistId(), patient.getUserId(), doctor.getUserId(), date, entry.getCreatedAt());
+        WaitlistEntry restored = waitlistRepo.findById(entry.getWaitlistId()).orElseThrow();
+        assertEquals(entry.getCreatedAt(), restored.getCreatedAt());
+
+        // Already back on the waitlist
+        assertThrows(DataIntegrityViolationException.class,
+                () -> waitlistRepo.restore(entry.getWaitlistId() + 1000, patient.getUserId(), doctor.getUserId(), date, entry.getCreatedAt()));
+    }
+}
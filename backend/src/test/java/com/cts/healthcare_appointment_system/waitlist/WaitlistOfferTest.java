@@ -0,0 +1,139 @@
+package com.cts.healthcare_appointment_system.waitlist;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.cts.healthcare_appointment_system.dto.WaitlistCandidate;
+import com.cts.healthcare_appointment_system.error.ApiException;
+import com.cts.healthcare_appointment_system.models.Appointment;
+import com.cts.healthcare_appointment_system.models.Availability;
+import com.cts.healthcare_appointment_system.repositories.AvailabilityRepository;
+import com.cts.healthcare_appointment_system.repositories.UserRepository;
+import com.cts.healthcare_appointment_system.repositories.WaitlistRepository;
+import com.cts.healthcare_appointment_system.services.BookingDispatcher;
+import com.cts.healthcare_appointment_system.services.SlotReleasedEvent;
+import com.cts.healthcare_appointment_system.services.WaitlistIndex;
+import com.cts.healthcare_appointment_system.services.WaitlistOfferExecutor;
+import com.cts.healthcare_appointment_system.services.WaitlistService;
+
+@ExtendWith(MockitoExtension.class)
+public class WaitlistOfferTest {
+
+    private static final LocalDateTime START = LocalDateTime.now().plusDays(2).withHour(9).withMinute(0).withSecond(0).withNano(0);
+    private static final SlotReleasedEvent EVENT = new SlotReleasedEvent(5, START, START.plusHours(1));
+
+    @Mock
+    private WaitlistRepository waitlistRepo;
+
+    @Mock
+    private UserRepository userRepo;
+
+    @Mock
+    private AvailabilityRepository availabilityRepo;
+
+    @Mock
+    private WaitlistIndex waitlistIndex;
+
+    @Mock
+    private BookingDispatcher bookingDispatcher;
+
+    @Mock
+    private WaitlistOfferExecutor offerExecutor;
+
+    private WaitlistService waitlistService;
+
+    @BeforeEach
+    void setUp() {
+        // Offer on the calling thread
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(offerExecutor).execute(any());
+        when(waitlistIndex.candidates(5, START.toLocalDate())).thenReturn(List.of(
+                new WaitlistCandidate(1, 10, START.minusDays(3)),
+                new WaitlistCandidate(2, 11, START.minusDays(2))));
+        lenient().when(waitlistRepo.claim(anyInt())).thenReturn(1);
+        lenient().when(availabilityRepo.findByDoctorUserIdAndTimeSlotStartAndTimeSlotEnd(5, START, START.plusHours(1)))
+                .thenReturn(Optional.of(new Availability()));
+
+        waitlistService = new WaitlistService(waitlistRepo, userRepo, availabilityRepo, waitlistIndex, bookingDispatcher, offerExecutor,
+                3, Duration.ofMillis(10));
+    }
+
+    @Test
+    void testBusyLaneIsRetriedForTheSamePatient() {
+        when(bookingDispatcher.book(any()))
+                .thenThrow(new ApiException("Too many booking requests", HttpStatus.TOO_MANY_REQUESTS))
+                .thenThrow(new ApiException("Restarting", HttpStatus.SERVICE_UNAVAILABLE))
+                .thenReturn(ResponseEntity.ok(new Appointment()));
+
+        waitlistService.onSlotReleased(EVENT);
+
+        verify(bookingDispatcher, times(3)).book(argThat(dto -> dto.getPatientId() == 10));
+        verify(waitlistRepo).claim(1);
+        verify(waitlistRepo, never()).claim(2);
+        verify(waitlistRepo, never()).restore(anyInt(), anyInt(), anyInt(), any(), any());
+        verify(waitlistIndex).removed(5, START.toLocalDate(), 1);
+    }
+
+    @Test
+    void testIneligiblePatientIsSkipped() {
+        when(bookingDispatcher.book(argThat(dto -> dto != null && dto.getPatientId() == 10)))
+                .thenThrow(new ApiException("Overlapping appointment", HttpStatus.BAD_REQUEST));
+        when(bookingDispatcher.book(argThat(dto -> dto != null && dto.getPatientId() == 11)))
+                .thenReturn(ResponseEntity.ok(new Appointment()));
+
+        waitlistService.onSlotReleased(EVENT);
+
+        // Back in the queue, in its place
+        verify(waitlistRepo).restore(1, 10, 5, START.toLocalDate(), START.minusDays(3));
+        verify(waitlistRepo).claim(2);
+        verify(waitlistRepo, never()).restore(eq(2), anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    void testBusyLaneGivesUpAfterMaxAttempts() {
+        when(bookingDispatcher.book(any())).thenThrow(new ApiException("Too many booking requests", HttpStatus.TOO_MANY_REQUESTS));
+
+        waitlistService.onSlotReleased(EVENT);
+
+        // Not passed on to the next patient either, the slot stays open
+        verify(bookingDispatcher, times(3)).book(any());
+        verify(bookingDispatcher, never()).book(argThat(dto -> dto.getPatientId() == 11));
+        verify(waitlistRepo).restore(1, 10, 5, START.toLocalDate(), START.minusDays(3));
+    }
+
+    @Test
+    void testPatientWhoLeftTheWaitlistIsNotBooked() {
+        // Left through another replica, this index still lists the entry
+        when(waitlistRepo.claim(1)).thenReturn(0);
+        when(bookingDispatcher.book(any())).thenReturn(ResponseEntity.ok(new Appointment()));
+
+        waitlistService.onSlotReleased(EVENT);
+
+        verify(bookingDispatcher, never()).book(argThat(dto -> dto.getPatientId() == 10));
+        verify(bookingDispatcher).book(argThat(dto -> dto.getPatientId() == 11));
+        verify(waitlistIndex).removed(5, START.toLocalDate(), 1);
+        verify(waitlistRepo, never()).restore(anyInt(), anyInt(), anyInt(), any(), any());
+    }
+}